@@ -24,7 +24,15 @@
   public <init>(android.content.Context, ***);
   @com.simplemvp.annotations.MvpHandler public <methods>;
 }
+# generated presenter proxies are instantiated using reflection
+-keep class * extends com.simplemvp.presenter.MvpPresenterProxy {
+  public <init>(...);
+}
 -keep class com.simplemvp.view.Proxify { *; }
+# generated view handle is instantiated using reflection
+-keep class * extends com.simplemvp.view.MvpViewHandleProxy {
+  <init>(...);
+}
 # some methods of this class are invoked using reflection
 -keepclassmembers class com.simplemvp.view.MvpDispatcher {
   @com.simplemvp.view.Proxify public <methods>;
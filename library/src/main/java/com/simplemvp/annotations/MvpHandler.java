@@ -21,4 +21,29 @@ public @interface MvpHandler {
      * invoke handler directly on the main thread.
      */
     boolean executor() default true;
+
+    /**
+     * if true then pending invocation of the same handler for the same view ID is replaced by the
+     * new one if it has not been started yet. So only the latest arguments are processed when
+     * events come faster than they are handled. It is suitable for high frequency events like text
+     * changes or seek bar progress. It is applied to handlers that are run using executor.
+     */
+    boolean coalesce() default false;
+
+    /**
+     * if positive then handler is invoked only when this number of milliseconds has passed since
+     * the last event of the same handler for the same view ID. Only the latest arguments are
+     * processed. It is suitable for events like search queries typed by user. It is applied to
+     * handlers that are run using executor.
+     */
+    long debounceMs() default 0;
+
+    /**
+     * if positive then handler is invoked at most once per this number of milliseconds for the
+     * same view ID. The first event is handled immediately and the latest one of the following
+     * events is handled when the interval is elapsed. If {@link #debounceMs()} is also set then it
+     * limits maximum delay of debounced invocation. It is applied to handlers that are run using
+     * executor.
+     */
+    long throttleMs() default 0;
 }
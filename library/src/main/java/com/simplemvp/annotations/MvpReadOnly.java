@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation designates presenter method that is invoked by presenter proxy directly without
+ * taking presenter lock. So the caller is not blocked by a handler that is being run by executor.
+ * Annotated method must not modify presenter state, it is suitable for methods that read final,
+ * volatile or atomic fields. Exception thrown by annotated method is passed to the error handler
+ * and rethrown. {@link MvpHandler} takes precedence over this annotation.
+ * <p>
+ * Annotated method does not restore hibernated state, so it must not read fields of a state that
+ * implements {@link com.simplemvp.common.MvpHibernatable}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface MvpReadOnly {
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.common;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class collects commands that are posted to the main thread by view handles during one
+ * presenter turn, i.e. one invocation of a presenter handler or task. Commands are delivered in
+ * one main thread message in posting order when the turn is finished. Consecutive commands of the
+ * same target are passed to the target at once, so a view handle checks that its view is alive
+ * and ready only once per batch. Commands posted outside of a turn are delivered immediately in
+ * their own messages.
+ * <p>
+ * Commands are posted according to {@link MvpDeliveryMode} of their targets, a turn that calls
+ * views with different modes posts one message per mode. Urgent commands are appended to a queue
+ * that is drained by one message at the front of the main thread queue, so they keep posting
+ * order.
+ * <p>
+ * This class is used by the library internally.
+ */
+public final class MainThreadBatch {
+    private final static Handler handler = new Handler(Looper.getMainLooper());
+    private final static ThreadLocal<MainThreadBatch> batches = new ThreadLocal<>();
+    /**
+     * urgent deliveries in posting order and flag that drain message is pending, they are guarded
+     * by the queue lock
+     */
+    private final static ArrayDeque<Delivery> urgent = new ArrayDeque<>();
+    private static boolean isDraining;
+    private static volatile MvpDeliveryListener listener;
+    private final List<Target<?>> targets = new ArrayList<>();
+    private final List<Object> commands = new ArrayList<>();
+    private final List<MvpDeliveryMode> modes = new ArrayList<>();
+    private int depth;
+
+    private MainThreadBatch() {
+    }
+
+    /**
+     * This method sets listener that is notified about latency of every delivered message.
+     *
+     * @param listener listener instance or null to disable measurement
+     */
+    public static void setListener(@Nullable MvpDeliveryListener listener) {
+        MainThreadBatch.listener = listener;
+    }
+
+    /**
+     * This method starts a turn on the current thread. Turns may be nested, commands are delivered
+     * when the outermost turn is finished.
+     */
+    public static void begin() {
+        MainThreadBatch batch = batches.get();
+        if (batch == null) {
+            batches.set(batch = new MainThreadBatch());
+        }
+        batch.depth++;
+    }
+
+    /**
+     * This method finishes a turn on the current thread and posts collected commands.
+     */
+    public static void end() {
+        MainThreadBatch batch = batches.get();
+        if (batch != null && --batch.depth == 0 && !batch.commands.isEmpty()) {
+            batch.send();
+            batch.targets.clear();
+            batch.commands.clear();
+            batch.modes.clear();
+        }
+    }
+
+    /**
+     * This method posts command to the main thread.
+     *
+     * @param target  target that executes the command
+     * @param command command to be executed
+     * @param <C>     command type
+     */
+    public static <C> void post(@NonNull Target<C> target, @NonNull C command) {
+        MainThreadBatch batch = batches.get();
+        if (batch == null || batch.depth == 0) {
+            send(new Delivery(new Target[]{target}, new Object[]{command}, target.getDeliveryMode()));
+        } else {
+            batch.targets.add(target);
+            batch.commands.add(command);
+            batch.modes.add(target.getDeliveryMode());
+        }
+    }
+
+    /**
+     * This method posts collected commands, commands of targets with different delivery modes
+     * are posted separately.
+     */
+    private void send() {
+        MvpDeliveryMode first = modes.get(0);
+        if (isSameMode(first)) {
+            send(new Delivery(targets.toArray(new Target[0]), commands.toArray(), first));
+        } else {
+            for (MvpDeliveryMode mode : MvpDeliveryMode.values()) {
+                List<Target<?>> selected = new ArrayList<>();
+                List<Object> selectedCommands = new ArrayList<>();
+                for (int i = 0; i < modes.size(); i++) {
+                    if (modes.get(i) == mode) {
+                        selected.add(targets.get(i));
+                        selectedCommands.add(commands.get(i));
+                    }
+                }
+                if (!selected.isEmpty()) {
+                    send(new Delivery(selected.toArray(new Target[0]), selectedCommands.toArray(), mode));
+                }
+            }
+        }
+    }
+
+    private boolean isSameMode(MvpDeliveryMode mode) {
+        for (int i = 1; i < modes.size(); i++) {
+            if (modes.get(i) != mode) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void send(Delivery delivery) {
+        if (delivery.mode == MvpDeliveryMode.URGENT) {
+            synchronized (urgent) {
+                urgent.add(delivery);
+                if (isDraining) {
+                    return;
+                }
+                isDraining = true;
+            }
+            sendDrain();
+        } else {
+            Message message = Message.obtain(handler, delivery);
+            if (delivery.mode != MvpDeliveryMode.NORMAL && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP_MR1) {
+                message.setAsynchronous(true);
+            }
+            handler.sendMessage(message);
+        }
+    }
+
+    /**
+     * This method puts message that drains urgent deliveries at the front of the queue. Only one
+     * such message is pending, so urgent deliveries are not reordered by each other.
+     */
+    private static void sendDrain() {
+        Message message = Message.obtain(handler, MainThreadBatch::drain);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP_MR1) {
+            message.setAsynchronous(true);
+        }
+        handler.sendMessageAtFrontOfQueue(message);
+    }
+
+    private static void drain() {
+        while (true) {
+            Delivery delivery;
+            synchronized (urgent) {
+                delivery = urgent.poll();
+                if (delivery == null) {
+                    isDraining = false;
+                    return;
+                }
+            }
+            try {
+                delivery.run();
+            } catch (RuntimeException e) {
+                // the rest is delivered by the next message
+                synchronized (urgent) {
+                    if (urgent.isEmpty()) {
+                        isDraining = false;
+                    } else {
+                        sendDrain();
+                    }
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * This interface is implemented by view handles to execute their commands
+     *
+     * @param <C> command type
+     */
+    public interface Target<C> {
+        /**
+         * This method is called on the main thread with consecutive commands of the target.
+         *
+         * @param commands commands in posting order
+         */
+        void execute(@NonNull List<C> commands);
+
+        /**
+         * This method returns how commands of the target are posted to the main thread.
+         *
+         * @return delivery mode of the target view
+         */
+        @NonNull
+        MvpDeliveryMode getDeliveryMode();
+    }
+
+    private final static class Delivery implements Runnable {
+        private final Target[] targets;
+        private final Object[] commands;
+        private final MvpDeliveryMode mode;
+        private final long time;
+
+        Delivery(Target[] targets, Object[] commands, MvpDeliveryMode mode) {
+            this.targets = targets;
+            this.commands = commands;
+            this.mode = mode;
+            this.time = listener == null ? 0 : System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            RuntimeException error = null;
+            int from = 0;
+            for (int i = 1; i <= targets.length; i++) {
+                if (i == targets.length || targets[i] != targets[from]) {
+                    List<Object> group = i - from == 1 ? Collections.singletonList(commands[from]) :
+                            Arrays.asList(commands).subList(from, i);
+                    try {
+                        targets[from].execute(group);
+                    } catch (RuntimeException e) {
+                        // other views get their commands, the error is rethrown afterwards
+                        if (error == null) {
+                            error = e;
+                        } else {
+                            error.addSuppressed(e);
+                        }
+                    }
+                    from = i;
+                }
+            }
+            MvpDeliveryListener listener = MainThreadBatch.listener;
+            if (listener != null && time != 0) {
+                // the next frame callback is run before traversal of the frame that renders changes
+                Choreographer.getInstance().postFrameCallback(frameTime ->
+                        listener.onDelivered(mode, start - time, System.nanoTime() - time));
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.common;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * This class is a dispatch table that is used by reflective proxies of the library. Every method
+ * of the table has a dense integer slot. Methods are matched by name and parameter types, so an
+ * interface method is resolved to the implementation and overloaded methods have different slots.
+ * Resolved {@link Method} instances are cached in an identity hash table, so lookup of a method
+ * that has been already seen does not compare names and it does not take a lock.
+ *
+ * @param <T> type of slot value
+ */
+public final class MethodTable<T> {
+    private final Method[] methods;
+    private final T[] values;
+    private volatile Index index = new Index(16);
+
+    /**
+     * @param methods methods of the table
+     * @param values  values of the methods
+     */
+    public MethodTable(@NonNull Method[] methods, @NonNull T[] values) {
+        if (methods.length != values.length) {
+            throw new IllegalArgumentException("methods and values have different length");
+        }
+        this.methods = methods.clone();
+        this.values = values.clone();
+    }
+
+    public int size() {
+        return methods.length;
+    }
+
+    /**
+     * This method returns slot of provided method.
+     *
+     * @param method method to look up
+     * @return slot number or -1 if there is no such method in the table
+     */
+    public int getSlot(@NonNull Method method) {
+        Index index = this.index;
+        Method[] keys = index.keys;
+        int mask = keys.length - 1;
+        for (int i = System.identityHashCode(method) & mask; ; i = (i + 1) & mask) {
+            Method key = keys[i];
+            if (key == method) {
+                return index.slots[i];
+            } else if (key == null) {
+                return resolve(method);
+            }
+        }
+    }
+
+    /**
+     * This method returns value of provided method
+     *
+     * @param method method to look up
+     * @return value or null if there is no such method in the table
+     */
+    @Nullable
+    public T get(@NonNull Method method) {
+        int slot = getSlot(method);
+        return slot < 0 ? null : values[slot];
+    }
+
+    @NonNull
+    public T getValue(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * This method looks up for a method with the same signature and caches the result. Index is
+     * copied on write so readers never see partially updated index.
+     */
+    private synchronized int resolve(Method method) {
+        Index current = index;
+        int slot = current.find(method);
+        if (slot != Index.MISSING) {
+            return slot;
+        }
+        slot = -1;
+        for (int i = 0; i < methods.length; i++) {
+            if (methods[i].getName().equals(method.getName()) &&
+                    Arrays.equals(methods[i].getParameterTypes(), method.getParameterTypes())) {
+                slot = i;
+                break;
+            }
+        }
+        if (current.size >= 8 * (methods.length + 1)) {
+            // proxies pass the same method instances, so the index is full of copies made elsewhere
+            return slot;
+        }
+        Index next = new Index(current.size * 2 + 2 > current.keys.length ? current.keys.length * 2 : current.keys.length);
+        for (int i = 0; i < current.keys.length; i++) {
+            if (current.keys[i] != null) {
+                next.put(current.keys[i], current.slots[i]);
+            }
+        }
+        next.put(method, slot);
+        index = next;
+        return slot;
+    }
+
+    private final static class Index {
+        final static int MISSING = Integer.MIN_VALUE;
+        final Method[] keys;
+        final int[] slots;
+        int size;
+
+        Index(int capacity) {
+            this.keys = new Method[capacity];
+            this.slots = new int[capacity];
+        }
+
+        int find(Method method) {
+            int mask = keys.length - 1;
+            for (int i = System.identityHashCode(method) & mask; keys[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == method) {
+                    return slots[i];
+                }
+            }
+            return MISSING;
+        }
+
+        void put(Method method, int slot) {
+            int mask = keys.length - 1;
+            int i = System.identityHashCode(method) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = method;
+            slots[i] = slot;
+            size++;
+        }
+    }
+}
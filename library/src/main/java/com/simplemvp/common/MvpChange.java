@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.common;
+
+import androidx.annotation.NonNull;
+
+/**
+ * This interface describes a single change of a state. Change is applied to presenter's state and
+ * it is recorded to be applied to views' copies of the state later. So it must not depend on
+ * anything but the state and captured immutable values.
+ *
+ * @param <S> state type
+ */
+@FunctionalInterface
+public interface MvpChange<S extends MvpState> {
+    void apply(@NonNull S state);
+}
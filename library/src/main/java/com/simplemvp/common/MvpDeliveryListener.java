@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.common;
+
+import androidx.annotation.NonNull;
+
+/**
+ * This interface is used to measure latency of calls that presenter makes through
+ * {@link MvpViewHandle}. It is notified on the main thread for every main thread message that
+ * delivers such calls. Listener is installed by
+ * {@link com.simplemvp.presenter.MvpPresenterManager#setDeliveryListener(MvpDeliveryListener)}.
+ */
+public interface MvpDeliveryListener {
+    /**
+     * This method is called at the beginning of the display frame that renders delivered calls.
+     *
+     * @param mode       delivery mode of the message
+     * @param queueTime  time in nanoseconds from posting the message to its execution
+     * @param renderTime time in nanoseconds from posting the message to the frame that renders it
+     */
+    void onDelivered(@NonNull MvpDeliveryMode mode, long queueTime, long renderTime);
+}
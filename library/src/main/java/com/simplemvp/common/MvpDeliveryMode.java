@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.common;
+
+/**
+ * This enumeration specifies how calls that presenter makes through {@link MvpViewHandle} from
+ * other threads are posted to the main thread.
+ */
+public enum MvpDeliveryMode {
+    /**
+     * calls are posted as regular messages, they wait for pending layout and drawing of the current
+     * frame
+     */
+    NORMAL,
+    /**
+     * calls are posted as asynchronous messages that are not blocked by synchronization barrier of
+     * a pending frame traversal, so state may be rendered one frame earlier. Asynchronous messages
+     * are supported since Android 5.1, regular messages are used on older versions.
+     */
+    ASYNCHRONOUS,
+    /**
+     * calls are posted as asynchronous messages at the front of the main thread queue. Urgent
+     * calls are executed in posting order. It is intended for latency critical views like echo of
+     * text input, it should not be used for heavy updates since it delays input and other
+     * messages.
+     */
+    URGENT
+}
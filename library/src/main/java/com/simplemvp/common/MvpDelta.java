@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.common;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * This class keeps changes of a state that have been recorded between two commits. Delta of
+ * revision N can be applied only to a copy of the state of revision N - 1.
+ *
+ * @param <S> state type
+ */
+public final class MvpDelta<S extends MvpState> {
+    private final int revision;
+    private final long changes;
+    private final List<MvpChange<?>> journal;
+
+    MvpDelta(int revision, long changes, @NonNull List<MvpChange<?>> journal) {
+        this.revision = revision;
+        this.changes = changes;
+        this.journal = journal;
+    }
+
+    /**
+     * This method returns revision of the state that delta produces
+     *
+     * @return revision number
+     */
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * This method returns bit mask of changed fields
+     *
+     * @return change mask
+     */
+    public long getChanges() {
+        return changes;
+    }
+
+    /**
+     * This predicate checks if delta can be applied to provided copy of the state.
+     *
+     * @param state copy of the state
+     * @return true if state has the previous revision
+     */
+    public boolean isApplicable(@NonNull S state) {
+        return state.getRevision() == revision - 1;
+    }
+
+    /**
+     * This method applies recorded changes to provided copy of the state.
+     *
+     * @param state copy of the state
+     */
+    public void applyTo(@NonNull S state) {
+        if (!isApplicable(state)) {
+            throw new IllegalStateException("delta " + revision + " can not be applied to revision "
+                    + state.getRevision());
+        }
+        state.applyDelta(journal, changes, revision);
+    }
+
+    /**
+     * This method applies recorded changes to a deep copy of provided state. Provided state is not
+     * modified, so it may be still referenced by a view that has rendered it.
+     *
+     * @param state copy of the state
+     * @return new copy of the state that has revision of the delta
+     */
+    @NonNull
+    public S applyToCopy(@NonNull S state) {
+        S copy = (S) state.cloneSameRevision();
+        applyTo(copy);
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "MvpDelta {" +
+                "revision=" + revision +
+                ", changes=" + Long.toHexString(changes) +
+                ", size=" + journal.size() +
+                '}';
+    }
+}
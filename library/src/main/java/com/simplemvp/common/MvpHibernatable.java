@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.common;
+
+import androidx.annotation.NonNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This interface is implemented by a {@link MvpState} subclass to let presenter hibernate while
+ * its views are stopped. Hibernated presenter writes the state to a file and releases its content,
+ * the state is read back before the next presenter handler is run. Change mask and revision of the
+ * state are kept in memory, so only fields declared by the subclass are written. Methods annotated
+ * with {@link com.simplemvp.annotations.MvpReadOnly} are invoked without restoring the state, so
+ * they must not read fields of hibernatable state.
+ * <p>
+ * Hibernation is triggered by {@link android.content.ComponentCallbacks2#onTrimMemory(int)} or
+ * after inactivity time, see
+ * {@link com.simplemvp.presenter.MvpPresenterManager#setHibernationDelay(long)} for details.
+ */
+public interface MvpHibernatable {
+    /**
+     * This method writes state fields to provided output.
+     *
+     * @param output output to write to
+     * @throws IOException if fields can not be written
+     */
+    void writeTo(@NonNull DataOutput output) throws IOException;
+
+    /**
+     * This method reads state fields that have been written by {@link #writeTo(DataOutput)}.
+     *
+     * @param input input to read from
+     * @throws IOException if fields can not be read
+     */
+    void readFrom(@NonNull DataInput input) throws IOException;
+
+    /**
+     * This method releases state fields after they have been written, e.g. large collections are
+     * replaced with empty ones. Released state must be usable, presenter goes on with it if the
+     * fields can not be read back.
+     */
+    void release();
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.common;
+
+/**
+ * This enumeration specifies what happens when view's queue of pending events is full. Events are
+ * queued while view is not ready to handle them.
+ */
+public enum MvpOverflowPolicy {
+    /**
+     * the oldest pending event is dropped to accept the new one
+     */
+    DROP_OLDEST,
+    /**
+     * the new event is dropped
+     */
+    DROP_NEWEST,
+    /**
+     * {@link IllegalStateException} is thrown
+     */
+    FAIL
+}
@@ -6,10 +6,22 @@ package com.simplemvp.common;
 
 import androidx.annotation.NonNull;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Base class that describes state of presenter & view
  */
 public abstract class MvpState implements Cloneable {
+    /**
+     * maximum number of fields that can be tracked by change mask
+     */
+    public final static int MAX_FIELDS = 64;
+    /**
+     * change mask of all fields
+     */
+    public final static long ALL_FIELDS = -1L;
+
     /**
      * revision number that represents how much time state has been cloned.
      */
@@ -20,16 +32,213 @@ public abstract class MvpState implements Cloneable {
      */
     private boolean isChanged = false;
 
+    /**
+     * bit mask of fields that have been changed since the last commit
+     */
+    private long changes;
+
+    /**
+     * changes recorded since the last revision or null if state does not record changes
+     */
+    private List<MvpChange<?>> journal;
+
+    protected MvpState() {
+        this(false);
+    }
+
+    /**
+     * @param isRecording true if all state changes are made using {@link #change(int, MvpChange)}
+     *                    so presenter can deliver {@link MvpDelta} to views instead of the full
+     *                    copy of the state
+     */
+    protected MvpState(boolean isRecording) {
+        if (isRecording) {
+            journal = new ArrayList<>();
+        }
+    }
+
     public final boolean isChanged() {
         return isChanged;
     }
 
+    /**
+     * This method marks state as changed. Since changed field is not specified all fields are
+     * considered to be changed by {@link #isChanged(int)}.
+     *
+     * @param isChanged true if state has been changed
+     */
     public final void setChanged(boolean isChanged) {
-        this.isChanged |= isChanged;
+        if (isChanged) {
+            this.isChanged = true;
+            this.changes = ALL_FIELDS;
+        }
+    }
+
+    /**
+     * This method marks provided field as changed. Field is identified by a number in range
+     * [0, {@link #MAX_FIELDS}) that is usually declared by a state subclass as a constant.
+     *
+     * @param field     field number
+     * @param isChanged true if field has been changed
+     */
+    public final void setChanged(int field, boolean isChanged) {
+        if (isChanged) {
+            this.isChanged = true;
+            this.changes |= getBit(field);
+        }
+    }
+
+    /**
+     * This predicate checks if provided field has been changed in this snapshot. View may use it
+     * to skip rendering of fields that have not been changed since the previous snapshot. All
+     * fields are considered to be changed in the initial snapshot and in a snapshot that is
+     * rendered by a view for the first time.
+     *
+     * @param field field number
+     * @return true if field has been changed
+     */
+    public final boolean isChanged(int field) {
+        return revision == 0 || (changes & getBit(field)) != 0;
+    }
+
+    public final long getChanges() {
+        return changes;
     }
 
     public final void clearChanged() {
         this.isChanged = false;
+        this.changes = 0;
+    }
+
+    /**
+     * This method returns shallow copy of the state that reports all fields as changed. It is used
+     * by a view to render a snapshot entirely. Copy must not be modified.
+     *
+     * @return copy of the state
+     */
+    @NonNull
+    public final MvpState cloneAllChanged() {
+        return cloneWithChanges(ALL_FIELDS);
+    }
+
+    /**
+     * This method returns shallow copy of the state that has provided change mask. It is used by a
+     * view to render a snapshot that replaces skipped snapshots. Copy must not be modified.
+     *
+     * @param changes change mask
+     * @return copy of the state
+     */
+    @NonNull
+    public final MvpState cloneWithChanges(long changes) {
+        try {
+            MvpState state = (MvpState) super.clone();
+            state.changes = changes;
+            state.journal = null;
+            return state;
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * This method applies change to the state and marks provided field as changed. Change is
+     * recorded if the state records changes.
+     *
+     * @param field  field number
+     * @param change change to be applied
+     * @param <S>    state type
+     */
+    protected final synchronized <S extends MvpState> void change(int field, @NonNull MvpChange<S> change) {
+        change.apply((S) this);
+        setChanged(field, true);
+        if (journal != null) {
+            journal.add(change);
+        }
+    }
+
+    /**
+     * This predicate checks if the state records changes to be delivered as {@link MvpDelta}
+     *
+     * @return true if state records changes
+     */
+    public final boolean isRecording() {
+        return journal != null;
+    }
+
+    /**
+     * This method returns changes recorded since the previous revision and starts a new revision.
+     *
+     * @param <S> state type
+     * @return {@link MvpDelta} instance
+     */
+    @NonNull
+    public final synchronized <S extends MvpState> MvpDelta<S> takeDelta() {
+        if (journal == null) {
+            throw new IllegalStateException("state does not record changes");
+        }
+        MvpDelta<S> delta = new MvpDelta<>(revision++, changes, journal);
+        journal = new ArrayList<>();
+        return delta;
+    }
+
+    /**
+     * This method returns deep copy of the state that has revision of the last {@link MvpDelta}, so
+     * it does not start a new revision. It is used to deliver full state to a view that can not
+     * apply the last delta.
+     *
+     * @return copy of the state
+     */
+    @NonNull
+    public final synchronized MvpState cloneLastRevision() {
+        if (revision == 0) {
+            throw new IllegalStateException("state has no revision yet");
+        }
+        List<MvpChange<?>> journal = this.journal;
+        try {
+            MvpState state = clone();
+            state.revision = --revision - 1;
+            return state;
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            this.journal = journal;
+        }
+    }
+
+    /**
+     * This method returns deep copy of the state that has the same revision. Unlike
+     * {@link #clone()} it does not start a new revision, so the state is not changed.
+     *
+     * @return copy of the state
+     */
+    final synchronized MvpState cloneSameRevision() {
+        int revision = this.revision;
+        List<MvpChange<?>> journal = this.journal;
+        try {
+            return clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            this.revision = revision;
+            this.journal = journal;
+        }
+    }
+
+    synchronized void applyDelta(List<MvpChange<?>> journal, long changes, int revision) {
+        afterCommit();
+        for (MvpChange change : journal) {
+            change.apply(this);
+        }
+        this.isChanged = true;
+        this.changes = changes;
+        this.revision = revision;
+    }
+
+    private static long getBit(int field) {
+        if (field < 0 || field >= MAX_FIELDS) {
+            throw new IllegalArgumentException("field number is out of range: " + field);
+        }
+        return 1L << field;
     }
 
     public final boolean isInitial() {
@@ -47,7 +256,12 @@ public abstract class MvpState implements Cloneable {
     @NonNull
     public synchronized MvpState clone() throws CloneNotSupportedException {
         MvpState state = (MvpState) super.clone();
+        state.journal = null;
         revision++;
+        if (journal != null) {
+            // changes made before the new revision can not be delivered as delta anymore
+            journal = new ArrayList<>();
+        }
         return state;
     }
 
@@ -56,6 +270,7 @@ public abstract class MvpState implements Cloneable {
         return getClass().getSimpleName() + " {" +
                 "revision=" + revision +
                 ", isChanged=" + isChanged +
+                ", changes=" + Long.toHexString(changes) +
                 '}';
     }
 }
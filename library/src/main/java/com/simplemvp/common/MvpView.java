@@ -126,6 +126,51 @@ public interface MvpView<S extends MvpState, P extends MvpPresenter<S>> extends
      */
     void onFirstStateChange(@NonNull S state);
 
+    /**
+     * This predicate specifies if state changes are rendered once per display frame. If it is true
+     * then only the newest state that has been posted during a frame is passed to
+     * {@link #onStateChanged(MvpState)} from {@link android.view.Choreographer} frame callback.
+     * Change mask of the state includes changes of the skipped states. It is false by default so
+     * every posted state is rendered immediately.
+     *
+     * @return true to render state changes once per frame
+     */
+    default boolean isFrameAligned() {
+        return false;
+    }
+
+    /**
+     * This method returns how calls that presenter makes through {@link MvpViewHandle} from other
+     * threads are posted to the main thread, see {@link MvpDeliveryMode} for details. It is called
+     * once when view handle is created.
+     *
+     * @return {@link MvpDeliveryMode#NORMAL} by default
+     */
+    @NonNull
+    default MvpDeliveryMode getDeliveryMode() {
+        return MvpDeliveryMode.NORMAL;
+    }
+
+    /**
+     * This method returns capacity of the queue of events that are sent by presenter while view
+     * is not ready to handle them. State is not queued, only the latest state is kept.
+     *
+     * @return queue capacity
+     */
+    default int getEventQueueCapacity() {
+        return 32;
+    }
+
+    /**
+     * This method returns policy that is applied when the queue of pending events is full
+     *
+     * @return {@link MvpOverflowPolicy} value
+     */
+    @NonNull
+    default MvpOverflowPolicy getEventQueuePolicy() {
+        return MvpOverflowPolicy.DROP_OLDEST;
+    }
+
     /**
      * This method returns {@link MvpViewHandle} of the current view to be passed in any
      * {@link MvpPresenter} handler.
@@ -44,6 +44,14 @@ public interface MvpViewHandle<S extends MvpState> {
      */
     void post(@NonNull S state);
 
+    /**
+     * This method posts changes of the state to parent view. View applies delta to its copy of the
+     * state. View requests full state if delta can not be applied.
+     *
+     * @param delta {@link MvpDelta} instance
+     */
+    void postDelta(@NonNull MvpDelta<S> delta);
+
     /**
      * This method terminates parent view
      */
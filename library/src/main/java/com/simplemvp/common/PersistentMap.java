@@ -0,0 +1,432 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.common;
+
+import androidx.annotation.NonNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * This is a hash map that shares its structure with snapshots. Entries are stored in a hash array
+ * mapped trie so {@link #snapshot()} takes constant time and a mutation made after snapshot copies
+ * only the path from the root to the touched node. It is intended to be used in {@link MvpState}
+ * subclasses instead of copying maps in {@link MvpState#clone()}.
+ * <p>
+ * Keys must not be null. Iterator traverses entries that were present when it has been created, so
+ * the map can be modified during iteration. Like {@link java.util.HashMap} this class is not
+ * synchronized, but the snapshot is not affected by further changes of the original map and vice
+ * versa.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class PersistentMap<K, V> extends AbstractMap<K, V> {
+    private final static int BITS = 5;
+    private final static int MASK = (1 << BITS) - 1;
+    /**
+     * nodes deeper than this shift store entries with equal hash codes in a plain array
+     */
+    private final static int MAX_SHIFT = 30;
+    private final static Object NOT_FOUND = new Object();
+    /**
+     * nodes that belong to the owner can be modified in place, other nodes are shared with
+     * snapshots and have to be copied before modification
+     */
+    private Object owner = new Object();
+    private Node root;
+    private int size;
+    private Object previous;
+    private boolean isChanged;
+    private Set<Entry<K, V>> entrySet;
+
+    public PersistentMap() {
+    }
+
+    public PersistentMap(@NonNull Map<? extends K, ? extends V> map) {
+        putAll(map);
+    }
+
+    private PersistentMap(PersistentMap<K, V> map) {
+        this.root = map.root;
+        this.size = map.size;
+    }
+
+    /**
+     * This method returns copy of the map in constant time. Both maps remain mutable and share
+     * nodes that have not been changed since the snapshot.
+     *
+     * @return snapshot of the map
+     */
+    @NonNull
+    public PersistentMap<K, V> snapshot() {
+        // nodes created so far are shared, so they are not owned by this map anymore
+        owner = new Object();
+        return new PersistentMap<>(this);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != NOT_FOUND;
+    }
+
+    @Override
+    public V get(Object key) {
+        Object value = find(key);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (key == null) {
+            throw new NullPointerException("key is null");
+        }
+        previous = null;
+        isChanged = false;
+        int hash = hash(key);
+        if (root == null) {
+            isChanged = true;
+            root = new Node(owner, 1 << index(hash, 0), new Object[]{key, value});
+        } else {
+            root = put(root, 0, hash, key, value);
+        }
+        if (isChanged) {
+            size++;
+        }
+        V result = (V) previous;
+        previous = null;
+        return result;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (key == null || root == null) {
+            return null;
+        }
+        previous = null;
+        isChanged = false;
+        root = remove(root, 0, hash(key), key);
+        if (isChanged) {
+            size--;
+        }
+        V result = (V) previous;
+        previous = null;
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    @NonNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int index(int hash, int shift) {
+        return (hash >>> shift) & MASK;
+    }
+
+    private Object find(Object key) {
+        if (key == null) {
+            return NOT_FOUND;
+        }
+        int hash = hash(key);
+        Node node = root;
+        for (int shift = 0; node != null; shift += BITS) {
+            if (shift > MAX_SHIFT) {
+                for (int i = 0; i < node.array.length; i += 2) {
+                    if (key.equals(node.array[i])) {
+                        return node.array[i + 1];
+                    }
+                }
+                return NOT_FOUND;
+            }
+            int bit = 1 << index(hash, shift);
+            if ((node.bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int i = 2 * Integer.bitCount(node.bitmap & (bit - 1));
+            Object k = node.array[i];
+            if (k != null) {
+                return key.equals(k) ? node.array[i + 1] : NOT_FOUND;
+            }
+            node = (Node) node.array[i + 1];
+        }
+        return NOT_FOUND;
+    }
+
+    private Node editable(Node node) {
+        return node.owner == owner ? node : new Node(owner, node.bitmap, node.array.clone());
+    }
+
+    /**
+     * This method replaces node array. Node is modified in place if it belongs to the owner.
+     */
+    private Node update(Node node, int bitmap, Object[] array) {
+        if (node.owner != owner) {
+            return new Node(owner, bitmap, array);
+        }
+        node.bitmap = bitmap;
+        node.array = array;
+        return node;
+    }
+
+    private Node put(Node node, int shift, int hash, K key, V value) {
+        if (shift > MAX_SHIFT) {
+            for (int i = 0; i < node.array.length; i += 2) {
+                if (key.equals(node.array[i])) {
+                    return putValue(node, i, value);
+                }
+            }
+            isChanged = true;
+            return update(node, 0, insert(node.array, node.array.length, key, value));
+        }
+        int bit = 1 << index(hash, shift);
+        int i = 2 * Integer.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0) {
+            isChanged = true;
+            return update(node, node.bitmap | bit, insert(node.array, i, key, value));
+        }
+        Object k = node.array[i];
+        Object v = node.array[i + 1];
+        if (k == null) {
+            Node child = put((Node) v, shift + BITS, hash, key, value);
+            if (child == v) {
+                return node;
+            }
+            Node result = editable(node);
+            result.array[i + 1] = child;
+            return result;
+        }
+        if (key.equals(k)) {
+            return putValue(node, i, value);
+        }
+        // two different keys share the same slot, so they are moved to a new child node
+        isChanged = true;
+        Node result = editable(node);
+        result.array[i] = null;
+        result.array[i + 1] = newNode(shift + BITS, hash(k), k, v, hash, key, value);
+        return result;
+    }
+
+    private Node putValue(Node node, int i, V value) {
+        previous = node.array[i + 1];
+        if (previous == value) {
+            return node;
+        }
+        Node result = editable(node);
+        result.array[i + 1] = value;
+        return result;
+    }
+
+    private Node newNode(int shift, int hash1, Object key1, Object value1, int hash2, Object key2, Object value2) {
+        if (shift > MAX_SHIFT) {
+            return new Node(owner, 0, new Object[]{key1, value1, key2, value2});
+        }
+        int i1 = index(hash1, shift);
+        int i2 = index(hash2, shift);
+        if (i1 == i2) {
+            return new Node(owner, 1 << i1, new Object[]{null,
+                    newNode(shift + BITS, hash1, key1, value1, hash2, key2, value2)});
+        }
+        return new Node(owner, (1 << i1) | (1 << i2), i1 < i2 ?
+                new Object[]{key1, value1, key2, value2} : new Object[]{key2, value2, key1, value1});
+    }
+
+    /**
+     * This method removes key from the node.
+     *
+     * @return modified node or null if node has become empty
+     */
+    private Node remove(Node node, int shift, int hash, Object key) {
+        if (shift > MAX_SHIFT) {
+            for (int i = 0; i < node.array.length; i += 2) {
+                if (key.equals(node.array[i])) {
+                    isChanged = true;
+                    previous = node.array[i + 1];
+                    return node.array.length == 2 ? null : update(node, 0, delete(node.array, i));
+                }
+            }
+            return node;
+        }
+        int bit = 1 << index(hash, shift);
+        if ((node.bitmap & bit) == 0) {
+            return node;
+        }
+        int i = 2 * Integer.bitCount(node.bitmap & (bit - 1));
+        Object k = node.array[i];
+        Object v = node.array[i + 1];
+        if (k == null) {
+            Node child = remove((Node) v, shift + BITS, hash, key);
+            if (child == v) {
+                return node;
+            }
+            if (child != null) {
+                Node result = editable(node);
+                result.array[i + 1] = child;
+                return result;
+            }
+        } else if (key.equals(k)) {
+            isChanged = true;
+            previous = v;
+        } else {
+            return node;
+        }
+        return node.bitmap == bit ? null : update(node, node.bitmap & ~bit, delete(node.array, i));
+    }
+
+    private static Object[] insert(Object[] array, int i, Object key, Object value) {
+        Object[] result = new Object[array.length + 2];
+        System.arraycopy(array, 0, result, 0, i);
+        result[i] = key;
+        result[i + 1] = value;
+        System.arraycopy(array, i, result, i + 2, array.length - i);
+        return result;
+    }
+
+    private static Object[] delete(Object[] array, int i) {
+        Object[] result = new Object[array.length - 2];
+        System.arraycopy(array, 0, result, 0, i);
+        System.arraycopy(array, i + 2, result, i, result.length - i);
+        return result;
+    }
+
+    private final static class Node {
+        final Object owner;
+        /**
+         * bit is set for every occupied slot
+         */
+        int bitmap;
+        /**
+         * key and value pairs, key is null if value is a child node
+         */
+        Object[] array;
+
+        Node(Object owner, int bitmap, Object[] array) {
+            this.owner = owner;
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @NonNull
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            // nodes are frozen, so changes made during iteration copy them
+            owner = new Object();
+            return new EntryIterator(root);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            PersistentMap.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+        private final Deque<Node> nodes = new ArrayDeque<>();
+        private final Deque<Integer> positions = new ArrayDeque<>();
+        private Node node;
+        private int position;
+        private Entry<K, V> next;
+        private Entry<K, V> last;
+
+        EntryIterator(Node root) {
+            this.node = root;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (node != null) {
+                if (position < node.array.length) {
+                    Object k = node.array[position];
+                    Object v = node.array[position + 1];
+                    position += 2;
+                    if (k != null) {
+                        next = new MapEntry(k, v);
+                        return;
+                    }
+                    nodes.push(node);
+                    positions.push(position);
+                    node = (Node) v;
+                    position = 0;
+                } else if (nodes.isEmpty()) {
+                    node = null;
+                } else {
+                    node = nodes.pop();
+                    position = positions.pop();
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            PersistentMap.this.remove(last.getKey());
+            last = null;
+        }
+    }
+
+    private final class MapEntry extends SimpleEntry<K, V> {
+
+        MapEntry(Object key, Object value) {
+            super((K) key, (V) value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
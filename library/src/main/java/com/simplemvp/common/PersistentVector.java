@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.common;
+
+import androidx.annotation.NonNull;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * This is a list that shares its structure with snapshots. Elements are stored in a 32-way trie so
+ * {@link #snapshot()} takes constant time and a mutation made after snapshot copies only the path
+ * from the root to the touched leaf. It is intended to be used in {@link MvpState} subclasses
+ * instead of copying lists in {@link MvpState#clone()}.
+ * <p>
+ * Appending, removing the last element, {@link #get(int)} and {@link #set(int, Object)} take
+ * O(log32 n) time. Removing elements from the front, e.g. {@code subList(0, n).clear()}, takes time
+ * proportional to the number of removed elements, the trie is rebuilt when removed elements
+ * outnumber remaining ones. Inserting or removing an element in the middle rebuilds the part of
+ * the list after that element. Like {@link java.util.ArrayList} this class is not synchronized,
+ * but the snapshot is not affected by further changes of the original list and vice versa.
+ *
+ * @param <E> element type
+ */
+public class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+    private final static int BITS = 5;
+    private final static int WIDTH = 1 << BITS;
+    private final static int MASK = WIDTH - 1;
+    /**
+     * nodes that belong to the owner can be modified in place, other nodes are shared with
+     * snapshots and have to be copied before modification
+     */
+    private Object owner = new Object();
+    private Node root;
+    private Node tail;
+    private int shift;
+    /**
+     * number of elements in the trie and the tail including removed front elements
+     */
+    private int size;
+    /**
+     * number of elements removed from the front, their slots are cleared but kept in the trie, so
+     * index of an element in the trie is its list index plus this offset
+     */
+    private int start;
+
+    public PersistentVector() {
+        clearNodes();
+    }
+
+    public PersistentVector(@NonNull Collection<? extends E> collection) {
+        this();
+        addAll(collection);
+    }
+
+    private PersistentVector(PersistentVector<E> vector) {
+        this.root = vector.root;
+        this.tail = vector.tail;
+        this.shift = vector.shift;
+        this.size = vector.size;
+        this.start = vector.start;
+    }
+
+    /**
+     * This method returns copy of the list in constant time. Both lists remain mutable and share
+     * nodes that have not been changed since the snapshot.
+     *
+     * @return snapshot of the list
+     */
+    @NonNull
+    public PersistentVector<E> snapshot() {
+        // nodes created so far are shared, so they are not owned by this list anymore
+        owner = new Object();
+        return new PersistentVector<>(this);
+    }
+
+    @Override
+    public int size() {
+        return size - start;
+    }
+
+    @Override
+    public E get(int index) {
+        checkIndex(index);
+        return getAt(start + index);
+    }
+
+    @Override
+    public E set(int index, E element) {
+        checkIndex(index);
+        return setAt(start + index, element);
+    }
+
+    @Override
+    public boolean add(E element) {
+        int tailOffset = getTailOffset();
+        if (size - tailOffset < WIDTH) {
+            tail = editable(tail);
+            tail.array[size - tailOffset] = element;
+        } else {
+            Node leaf = tail;
+            tail = new Node(owner);
+            tail.array[0] = element;
+            if ((size >>> BITS) > (1 << shift)) {
+                // root is full, so trie grows by one level
+                Node node = new Node(owner);
+                node.array[0] = root;
+                node.array[1] = newPath(shift, leaf);
+                root = node;
+                shift += BITS;
+            } else {
+                root = pushTail(shift, root, leaf);
+            }
+        }
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+        Object[] rest = truncate(index);
+        add(element);
+        for (Object value : rest) {
+            add((E) value);
+        }
+    }
+
+    @Override
+    public E remove(int index) {
+        checkIndex(index);
+        if (index == 0) {
+            E element = get(0);
+            removeFront(1);
+            return element;
+        }
+        Object[] rest = truncate(index);
+        for (int i = 1; i < rest.length; i++) {
+            add((E) rest[i]);
+        }
+        return (E) rest[0];
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex == 0) {
+            removeFront(toIndex);
+            return;
+        }
+        Object[] rest = truncate(fromIndex);
+        for (int i = toIndex - fromIndex; i < rest.length; i++) {
+            add((E) rest[i]);
+        }
+    }
+
+    @Override
+    public void clear() {
+        clearNodes();
+        modCount++;
+    }
+
+    /**
+     * This method removes the last element of the list.
+     *
+     * @return removed element
+     */
+    public E removeLast() {
+        if (size == start) {
+            throw new IndexOutOfBoundsException("list is empty");
+        }
+        E element = getAt(size - 1);
+        int tailOffset = getTailOffset();
+        if (size - start == 1) {
+            clearNodes();
+        } else if (size - tailOffset > 1) {
+            tail = editable(tail);
+            tail.array[size - 1 - tailOffset] = null;
+            size--;
+        } else {
+            // the last leaf of the trie becomes a tail
+            Node leaf = getLeaf(size - 2);
+            Node node = popTail(shift, root);
+            if (node == null) {
+                node = new Node(owner);
+            }
+            if (shift > BITS && node.array[1] == null) {
+                node = (Node) node.array[0];
+                shift -= BITS;
+            }
+            root = node;
+            tail = leaf;
+            size--;
+        }
+        modCount++;
+        return element;
+    }
+
+    /**
+     * This method removes provided number of elements from the front of the list. Slots of removed
+     * elements are cleared, the trie is rebuilt when removed elements outnumber remaining ones, so
+     * removal takes amortized constant time per element.
+     */
+    private void removeFront(int count) {
+        if (count == size()) {
+            clearNodes();
+        } else if (count > 0) {
+            for (int i = start; i < start + count; i++) {
+                setAt(i, null);
+            }
+            start += count;
+            if (start > size - start) {
+                Object[] values = toArray();
+                clearNodes();
+                for (Object value : values) {
+                    add((E) value);
+                }
+            }
+        }
+        modCount++;
+    }
+
+    private void clearNodes() {
+        root = new Node(owner);
+        tail = new Node(owner);
+        shift = BITS;
+        size = 0;
+        start = 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+    }
+
+    /**
+     * @param index index of element in the trie
+     */
+    private E getAt(int index) {
+        return (E) getLeaf(index).array[index & MASK];
+    }
+
+    /**
+     * @param index index of element in the trie
+     */
+    private E setAt(int index, E element) {
+        Node leaf;
+        if (index >= getTailOffset()) {
+            leaf = tail = editable(tail);
+        } else {
+            leaf = root = editable(root);
+            for (int level = shift; level > 0; level -= BITS) {
+                int i = (index >>> level) & MASK;
+                leaf = (Node) (leaf.array[i] = editable((Node) leaf.array[i]));
+            }
+        }
+        E previous = (E) leaf.array[index & MASK];
+        leaf.array[index & MASK] = element;
+        return previous;
+    }
+
+    private int getTailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Node getLeaf(int index) {
+        if (index >= getTailOffset()) {
+            return tail;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.array[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    private Node editable(Node node) {
+        return node.owner == owner ? node : new Node(owner, node.array.clone());
+    }
+
+    private Node newPath(int level, Node node) {
+        if (level == 0) {
+            return node;
+        }
+        Node result = new Node(owner);
+        result.array[0] = newPath(level - BITS, node);
+        return result;
+    }
+
+    private Node pushTail(int level, Node parent, Node leaf) {
+        Node result = editable(parent);
+        int i = ((size - 1) >>> level) & MASK;
+        if (level == BITS) {
+            result.array[i] = leaf;
+        } else {
+            Node child = (Node) result.array[i];
+            result.array[i] = child == null ? newPath(level - BITS, leaf) : pushTail(level - BITS, child, leaf);
+        }
+        return result;
+    }
+
+    private Node popTail(int level, Node node) {
+        int i = ((size - 2) >>> level) & MASK;
+        if (level > BITS) {
+            Node child = popTail(level - BITS, (Node) node.array[i]);
+            if (child == null && i == 0) {
+                return null;
+            }
+            Node result = editable(node);
+            result.array[i] = child;
+            return result;
+        } else if (i == 0) {
+            return null;
+        } else {
+            Node result = editable(node);
+            result.array[i] = null;
+            return result;
+        }
+    }
+
+    /**
+     * This method removes elements starting from provided index.
+     *
+     * @return removed elements
+     */
+    private Object[] truncate(int index) {
+        Object[] rest = new Object[size() - index];
+        for (int i = rest.length - 1; i >= 0; i--) {
+            rest[i] = removeLast();
+        }
+        return rest;
+    }
+
+    private final static class Node {
+        final Object owner;
+        final Object[] array;
+
+        Node(Object owner) {
+            this(owner, new Object[WIDTH]);
+        }
+
+        Node(Object owner, Object[] array) {
+            this.owner = owner;
+            this.array = array;
+        }
+    }
+}
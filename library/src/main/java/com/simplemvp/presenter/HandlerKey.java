@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.presenter;
+
+import com.simplemvp.common.MvpViewHandle;
+
+/**
+ * This class identifies handler invocation by handler, calling view and view ID. It is used to
+ * find pending invocation of the same handler for the same view.
+ */
+final class HandlerKey {
+    private final Object handler;
+    private final MvpViewHandle<?> handle;
+    private final int viewId;
+
+    HandlerKey(Object handler, MvpViewHandle<?> handle, int viewId) {
+        this.handler = handler;
+        this.handle = handle;
+        this.viewId = viewId;
+    }
+
+    MvpViewHandle<?> getHandle() {
+        return handle;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        HandlerKey key = (HandlerKey) o;
+        return viewId == key.viewId && handle == key.handle && handler.equals(key.handler);
+    }
+
+    @Override
+    public int hashCode() {
+        return (handler.hashCode() * 31 + System.identityHashCode(handle)) * 31 + viewId;
+    }
+
+    @Override
+    public String toString() {
+        return "HandlerKey{" +
+                "handler=" + handler +
+                ", viewId=" + viewId +
+                '}';
+    }
+}
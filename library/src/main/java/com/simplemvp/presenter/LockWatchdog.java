@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.presenter;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * This class detects that the main thread waits for a presenter lock longer than threshold. The
+ * main thread registers a wait before it takes the lock. Watchdog thread captures stack of the
+ * thread that holds the lock when threshold is exceeded and the wait is reported to the error
+ * handler as {@link MvpBlockedException} when the main thread gets the lock.
+ */
+final class LockWatchdog implements Runnable {
+    private final static String tag = LockWatchdog.class.getSimpleName();
+    private final static Thread mainThread = Looper.getMainLooper().getThread();
+    private final MvpPresenterManager manager;
+    private final long threshold;
+    private final Thread thread;
+    private Wait current;
+    /**
+     * wait which lock holder stack is being captured
+     */
+    private Wait capturing;
+    private boolean isStopped;
+
+    LockWatchdog(MvpPresenterManager manager, long threshold) {
+        this.manager = manager;
+        this.threshold = threshold;
+        this.thread = new Thread(this, tag);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    synchronized void stop() {
+        isStopped = true;
+        notify();
+    }
+
+    /**
+     * This method registers wait of the main thread. Other threads are not watched.
+     *
+     * @param presenter presenter to be locked
+     * @param method    name of the called method
+     * @return wait to be finished when the lock is taken or null
+     */
+    Wait begin(MvpBasePresenter<?> presenter, String method) {
+        if (Thread.currentThread() != mainThread) {
+            return null;
+        }
+        Wait wait = new Wait(presenter, method, SystemClock.uptimeMillis());
+        synchronized (this) {
+            current = wait;
+            notify();
+        }
+        return wait;
+    }
+
+    private void end(Wait wait) {
+        synchronized (this) {
+            if (current == wait) {
+                current = null;
+            }
+            wait.time = SystemClock.uptimeMillis() - wait.start;
+            if (capturing == wait) {
+                // the wait is reported by watchdog thread when the stack is captured
+                wait.isEnded = true;
+                return;
+            }
+        }
+        report(wait);
+    }
+
+    private void report(Wait wait) {
+        if (wait.time >= threshold) {
+            MvpBlockedException e = new MvpBlockedException(wait.presenter.toString(), wait.method,
+                    wait.handler, wait.time);
+            StackTraceElement[] stack = wait.stack;
+            if (stack != null) {
+                e.setStackTrace(stack);
+            }
+            manager.getErrorHandler().accept(e);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Wait wait;
+                synchronized (this) {
+                    while (current == null && !isStopped) {
+                        wait();
+                    }
+                    if (isStopped) {
+                        return;
+                    }
+                    long delay = current.start + threshold - SystemClock.uptimeMillis();
+                    if (delay > 0) {
+                        // the wait may be finished or replaced meanwhile, so it is checked again
+                        wait(delay);
+                        continue;
+                    }
+                    wait = current;
+                    current = null;
+                    capturing = wait;
+                }
+                capture(wait);
+                boolean isEnded;
+                synchronized (this) {
+                    capturing = null;
+                    isEnded = wait.isEnded;
+                }
+                if (isEnded) {
+                    report(wait);
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.w(tag, "watchdog is interrupted");
+        }
+    }
+
+    /**
+     * This method captures stack of the lock holder. Handler is the outermost method of the
+     * presenter class in the stack.
+     */
+    private static void capture(Wait wait) {
+        Thread owner = wait.presenter.getOwner();
+        if (owner == null) {
+            return;
+        }
+        StackTraceElement[] stack = owner.getStackTrace();
+        String name = wait.presenter.getClass().getName();
+        for (int i = stack.length - 1; i >= 0; i--) {
+            if (stack[i].getClassName().equals(name) && !stack[i].getMethodName().startsWith("lambda$")) {
+                wait.handler = stack[i].getClassName() + "." + stack[i].getMethodName();
+                break;
+            }
+        }
+        wait.stack = stack;
+    }
+
+    /**
+     * This class keeps wait of the main thread for a presenter lock
+     */
+    final class Wait {
+        final MvpBasePresenter<?> presenter;
+        final String method;
+        final long start;
+        volatile String handler;
+        volatile StackTraceElement[] stack;
+        /**
+         * wait time and flag that the lock has been taken during capture, they are changed under
+         * watchdog lock
+         */
+        long time;
+        boolean isEnded;
+
+        Wait(MvpBasePresenter<?> presenter, String method, long start) {
+            this.presenter = presenter;
+            this.method = method;
+            this.start = start;
+        }
+
+        /**
+         * This method is called by the main thread when the lock has been taken
+         */
+        void end() {
+            LockWatchdog.this.end(this);
+        }
+    }
+}
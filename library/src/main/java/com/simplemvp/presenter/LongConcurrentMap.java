@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.presenter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class is a concurrent map with primitive long keys, so keys are not boxed. It is an open
+ * addressing hash table with linear probing. Lookups are lock-free: they read a volatile table
+ * reference and volatile slots and never block. Modifications are serialized by the map lock since
+ * presenters are registered and released rarely comparing to lookups.
+ * <p>
+ * Slot key is written before its value is published and it is never changed afterwards, so a
+ * reader that sees a value sees its key too. Removed value is replaced with a tombstone, the slot
+ * is reused only by the same key. Tombstones are dropped when the table is rebuilt, the new table
+ * is published by a single volatile write and the old table is not modified anymore. Null values
+ * are not allowed.
+ *
+ * @param <V> value type
+ */
+final class LongConcurrentMap<V> {
+    private final static int INITIAL_CAPACITY = 16;
+    private final static Object TOMBSTONE = new Object();
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private volatile int size;
+
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Nullable
+    V get(long key) {
+        Table table = this.table;
+        int mask = table.keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            // value is read first, it guarantees that the key is visible
+            Object value = table.values.get(i);
+            if (value == null) {
+                return null;
+            }
+            if (table.keys[i] == key) {
+                return value == TOMBSTONE ? null : (V) value;
+            }
+        }
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return previous value or null
+     */
+    @Nullable
+    V put(long key, @NonNull V value) {
+        return put(key, value, false);
+    }
+
+    /**
+     * @return current value or null if value has been put
+     */
+    @Nullable
+    V putIfAbsent(long key, @NonNull V value) {
+        return put(key, value, true);
+    }
+
+    private synchronized V put(long key, V value, boolean isAbsent) {
+        Table table = this.table;
+        int mask = table.keys.length - 1;
+        int i = hash(key) & mask;
+        for (Object current; (current = table.values.get(i)) != null; i = (i + 1) & mask) {
+            if (table.keys[i] == key) {
+                if (current == TOMBSTONE) {
+                    table.values.set(i, value);
+                    size++;
+                    return null;
+                }
+                if (!isAbsent) {
+                    table.values.set(i, value);
+                }
+                return (V) current;
+            }
+        }
+        table.keys[i] = key;
+        table.values.set(i, value);
+        size++;
+        // used slots including tombstones are kept below 3/4 of the table
+        if (++table.used * 4 > table.keys.length * 3) {
+            rebuild(table);
+        }
+        return null;
+    }
+
+    /**
+     * @return removed value or null
+     */
+    @Nullable
+    V remove(long key) {
+        return removeValue(key, null);
+    }
+
+    /**
+     * This method removes the key only if it is mapped to provided value.
+     *
+     * @return true if value has been removed
+     */
+    boolean remove(long key, @NonNull V value) {
+        return removeValue(key, value) != null;
+    }
+
+    private synchronized V removeValue(long key, V expected) {
+        Table table = this.table;
+        int mask = table.keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Object current = table.values.get(i);
+            if (current == null) {
+                return null;
+            }
+            if (table.keys[i] == key) {
+                if (current == TOMBSTONE || (expected != null && expected != current)) {
+                    return null;
+                }
+                table.values.set(i, TOMBSTONE);
+                size--;
+                return (V) current;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * This method copies live entries to a new table. Table grows if live entries take more than
+     * half of the new table, otherwise only tombstones are dropped.
+     */
+    private void rebuild(Table old) {
+        int capacity = old.keys.length;
+        while (size * 2 > capacity) {
+            capacity *= 2;
+        }
+        Table table = new Table(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < old.keys.length; j++) {
+            Object value = old.values.get(j);
+            if (value != null && value != TOMBSTONE) {
+                int i = hash(old.keys[j]) & mask;
+                while (table.values.get(i) != null) {
+                    i = (i + 1) & mask;
+                }
+                table.keys[i] = old.keys[j];
+                table.values.lazySet(i, value);
+                table.used++;
+            }
+        }
+        // volatile write publishes keys and values of the new table
+        this.table = table;
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final AtomicReferenceArray<Object> values;
+        /**
+         * number of slots that have values or tombstones, it is changed under the map lock
+         */
+        int used;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new AtomicReferenceArray<>(capacity);
+        }
+    }
+}
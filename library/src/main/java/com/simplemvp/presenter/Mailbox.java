@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.presenter;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class is a serial executor (mailbox) of a single presenter. Tasks of the same mailbox are run
+ * one by one in submission order while different mailboxes are drained by the shared thread pool in
+ * parallel. So slow handler of one presenter does not stall handlers of other presenters.
+ * <p>
+ * Mailbox is the run loop of a presenter: timers are kept by the shared {@link TimingWheel} that
+ * puts them to the mailbox when they are due, so they are run by the same drainer as tasks. So
+ * delayed and periodic tasks never run concurrently with handlers of the presenter.
+ */
+final class Mailbox implements Executor {
+    /**
+     * maximum number of tasks to be run at once before the thread is given back to the pool
+     */
+    private final static int BATCH_SIZE = 32;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean isScheduled = new AtomicBoolean();
+    private final ConcurrentMap<Object, LatestTask> pending = new ConcurrentHashMap<>();
+    private final Runnable drainer = this::drain;
+    private final Executor executor;
+    private final TimingWheel wheel;
+
+    /**
+     * @param executor shared executor that drains mailboxes
+     * @param wheel    shared timing wheel that keeps timers
+     */
+    Mailbox(@NonNull Executor executor, @NonNull TimingWheel wheel) {
+        this.executor = executor;
+        this.wheel = wheel;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable task) {
+        tasks.add(task);
+        schedule();
+    }
+
+    /**
+     * This method submits task that replaces pending task with the same key if the latter has not
+     * been started yet. So there is at most one pending task per key.
+     *
+     * @param key  key of the task
+     * @param task task to be run
+     */
+    void executeLatest(@NonNull Object key, @NonNull Runnable task) {
+        while (true) {
+            LatestTask current = pending.get(key);
+            if (current != null && current.replace(task)) {
+                return;
+            }
+            LatestTask latest = new LatestTask(key, task);
+            if (current == null ? pending.putIfAbsent(key, latest) == null : pending.replace(key, current, latest)) {
+                execute(latest);
+                return;
+            }
+        }
+    }
+
+    /**
+     * This method schedules task to be run in the mailbox context after provided delay.
+     *
+     * @param task   task to be run
+     * @param delay  delay in milliseconds
+     * @param period period in milliseconds of a task that is run at fixed rate or 0 for single
+     *               shot task
+     * @return {@link ScheduledFuture} that cancels the task
+     */
+    @NonNull
+    ScheduledFuture<?> schedule(@NonNull Runnable task, long delay, long period) {
+        Timer timer = new Timer(task, SystemClock.uptimeMillis() + Math.max(0, delay), period);
+        wheel.scheduleAt(timer.entry, timer.deadline);
+        return timer;
+    }
+
+    /**
+     * This method creates reusable timer that runs provided task in the mailbox context.
+     *
+     * @param task task to be run
+     * @return {@link Alarm} instance
+     */
+    @NonNull
+    Alarm newAlarm(@NonNull Runnable task) {
+        return new Alarm(task);
+    }
+
+    private void schedule() {
+        if (isScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(drainer);
+            } catch (RejectedExecutionException e) {
+                isScheduled.set(false);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * This method runs queued tasks. Only one thread drains the mailbox at the same time.
+     */
+    private void drain() {
+        try {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Runnable task = tasks.poll();
+                if (task == null) {
+                    break;
+                }
+                task.run();
+            }
+        } finally {
+            isScheduled.set(false);
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * This is a task that is run by the mailbox when its deadline comes. Cancelled timer is removed
+     * from the wheel in constant time.
+     */
+    private final class Timer extends FutureTask<Void> implements ScheduledFuture<Void> {
+        private final TimingWheel.Entry entry = new TimingWheel.Entry(() -> execute(this));
+        private final long period;
+        private volatile long deadline;
+
+        Timer(Runnable task, long deadline, long period) {
+            super(task, null);
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        @Override
+        public long getDelay(@NonNull TimeUnit unit) {
+            return unit.convert(deadline - SystemClock.uptimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(@NonNull Delayed other) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean isCancelled = super.cancel(mayInterruptIfRunning);
+            if (isCancelled) {
+                wheel.cancel(entry);
+            }
+            return isCancelled;
+        }
+
+        @Override
+        public void run() {
+            if (period <= 0) {
+                super.run();
+            } else if (runAndReset()) {
+                // fixed rate like ScheduledExecutorService#scheduleAtFixedRate
+                deadline += period;
+                wheel.scheduleAt(entry, deadline);
+            }
+        }
+    }
+
+    /**
+     * This is a reusable timer. Setting of the alarm moves it to the new deadline in place, so
+     * frequent rescheduling like delayed commit on every key press does not allocate.
+     */
+    final class Alarm {
+        private final TimingWheel.Entry entry;
+
+        private Alarm(Runnable task) {
+            this.entry = new TimingWheel.Entry(() -> execute(task));
+        }
+
+        /**
+         * This method sets alarm to provided delay. Pending alarm is moved.
+         *
+         * @param delay delay in milliseconds
+         */
+        void set(long delay) {
+            wheel.schedule(entry, delay);
+        }
+
+        /**
+         * This method cancels pending alarm.
+         */
+        void cancel() {
+            wheel.cancel(entry);
+        }
+    }
+
+    /**
+     * This task keeps the latest submitted task of the key. Task is considered to be started when
+     * reference is cleared.
+     */
+    private final class LatestTask implements Runnable {
+        private final Object key;
+        private final AtomicReference<Runnable> task;
+
+        LatestTask(Object key, Runnable task) {
+            this.key = key;
+            this.task = new AtomicReference<>(task);
+        }
+
+        boolean replace(Runnable next) {
+            Runnable current = task.get();
+            return current != null && task.compareAndSet(current, next);
+        }
+
+        @Override
+        public void run() {
+            pending.remove(key, this);
+            Runnable current = task.getAndSet(null);
+            if (current != null) {
+                current.run();
+            }
+        }
+    }
+}
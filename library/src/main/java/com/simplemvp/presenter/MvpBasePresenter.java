@@ -23,18 +23,32 @@ import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleObserver;
 import androidx.lifecycle.OnLifecycleEvent;
 
+import com.simplemvp.annotations.MvpReadOnly;
 import com.simplemvp.common.Executable;
+import com.simplemvp.common.MainThreadBatch;
+import com.simplemvp.common.MvpDelta;
+import com.simplemvp.common.MvpHibernatable;
 import com.simplemvp.common.MvpPresenter;
 import com.simplemvp.common.MvpState;
 import com.simplemvp.common.MvpView;
 import com.simplemvp.common.MvpViewHandle;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -52,28 +66,63 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
     private final MvpPresenterManager manager;
     private final ViewLifecycleObserver observer;
     private final int id;
+    /**
+     * views are connected on the main thread without presenter lock, so handles are kept in a
+     * concurrent map to be read without locks. Handles are put and removed under the map lock to
+     * make lifecycle decisions atomic with the handle set.
+     */
     private final Map<Integer, MvpViewHandle<S>> handles;
+    private final Map<Integer, Integer> revisions;
     private final ExecutorService executor;
-    private final ScheduledExecutorService scheduler;
+    private final Mailbox mailbox;
+    private final RateLimiter limiter;
+    private final TickService ticks;
     private final Map<String, AsyncBroadcastReceiver> receivers;
     private final Consumer<Throwable> errorHandler;
     private final Map<Executable, Future<?>> futures;
     private final PresenterComponentCallbacks componentCallbacks;
-    private int parentId;
-    private ScheduledFuture<?> commit;
+    private volatile int parentId;
+    /**
+     * true from connection of the first view till disconnection of the last view is handled, it
+     * is changed under handles lock
+     */
+    private boolean isConnected;
+    /**
+     * true while presenter is kept by retention cache of {@link MvpPresenterManager}, it is changed
+     * under handles lock
+     */
+    private boolean isRetained;
+    /**
+     * thread that runs a handler in synchronized context, it is tracked when lock watchdog is enabled
+     */
+    private volatile Thread owner;
+    /**
+     * depth of nested synchronized entry points of the owner, it is changed under presenter lock
+     */
+    private int ownerDepth;
+    private final Mailbox.Alarm commit;
+    private final Mailbox.Alarm hibernation;
+    /**
+     * true if state has been written to a file and released, it is changed under presenter lock
+     */
+    private volatile boolean isHibernated;
 
     public MvpBasePresenter(Context context, S state) {
         super(context);
         this.manager = MvpPresenterManager.getInstance(context);
         this.observer = new ViewLifecycleObserver();
         this.executor = manager.getExecutor();
-        this.scheduler = manager.getScheduledExecutor();
+        this.mailbox = new Mailbox(executor, manager.getTimingWheel());
+        this.limiter = new RateLimiter(mailbox);
+        this.ticks = manager.getTickService();
+        this.commit = mailbox.newAlarm(() -> executeSync(this::commit, false));
+        this.hibernation = mailbox.newAlarm(() -> executeLocked(this::hibernate));
         this.errorHandler = manager.getErrorHandler();
         this.state = state;
         this.id = lastId.incrementAndGet();
-        this.handles = new TreeMap<>();
+        this.handles = new ConcurrentSkipListMap<>();
+        this.revisions = new ConcurrentHashMap<>();
         this.receivers = new TreeMap<>();
-        this.commit = scheduler.schedule(() -> null, 0, TimeUnit.MILLISECONDS);
         this.futures = new TreeMap<>((o1, o2) -> o1.hashCode() - o2.hashCode());
         this.componentCallbacks = new PresenterComponentCallbacks();
     }
@@ -84,65 +133,144 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
 
     /**
      * This method is called by a view to attached oneself to presenter that is instantiated by
-     * {@link MvpPresenterManager}
+     * {@link MvpPresenterManager}. It does not take presenter lock, so the main thread is not
+     * blocked by a running handler, only the handle set is updated under its own short lock.
+     * Callbacks and the state are delivered in the serial context.
      *
      * @param view {@link MvpViewHandle MvpViewHandle} to connect to
      */
+    @MvpReadOnly
     @Override
-    public final synchronized void connect(@NonNull MvpView<S, ?> view) {
+    public final void connect(@NonNull MvpView<S, ?> view) {
         MvpViewHandle<S> handle = view.getViewHandle();
-        boolean isFirst = handles.isEmpty();
-        if (handles.put(view.getMvpId(), handle) == null) {
+        int viewId = view.getMvpId();
+        boolean isNew;
+        boolean isFirst;
+        boolean isReused;
+        synchronized (handles) {
+            isNew = handles.put(viewId, handle) == null;
+            isFirst = !isConnected;
+            isReused = isFirst && isRetained;
+            isConnected = true;
+            isRetained = false;
+        }
+        if (isFirst) {
+            manager.onConnected(this);
+        }
+        if (isNew) {
             Bundle arguments = view.getArguments() == null ? new Bundle() : new Bundle(view.getArguments());
             submit(() -> {
                 if (isFirst) {
                     parentId = handle.getMvpId();
-                    onFirstViewConnected(handle, arguments);
+                    // retained presenter has been initialized and has not released its resources
+                    if (!isReused) {
+                        onFirstViewConnected(handle, arguments);
+                    }
                 }
                 onViewConnected(handle, arguments);
-                handle.post(cloneState());
+                postState(viewId, handle);
             });
         } else {
-            handle.post(cloneState());
+            submit(() -> postState(viewId, handle));
         }
         view.getLifecycle().addObserver(observer);
     }
 
+    @MvpReadOnly
     @Override
-    public final synchronized void disconnect(@NonNull MvpView<S, ?> view) {
-        if (handles.remove(view.getMvpId()) != null && handles.isEmpty()) {
-            executor.submit(() -> {
-                synchronized (this) {
-                    try {
-                        onLastViewDisconnected();
-                    } catch (Exception e) {
-                        errorHandler.accept(e);
-                    }
-                }
-            });
+    public final void disconnect(@NonNull MvpView<S, ?> view) {
+        if (removeHandle(view.getMvpId())) {
+            mailbox.execute(() -> executeLocked(this::onDisconnected));
         }
         view.getLifecycle().removeObserver(observer);
     }
 
+    @MvpReadOnly
     @Override
     public final void disconnectLazy(int id) {
         submit(() -> {
-            if (handles.remove(id) != null && handles.isEmpty()) {
-                onLastViewDisconnected();
+            if (removeHandle(id)) {
+                onDisconnected();
             }
         });
     }
 
+    /**
+     * This method removes handle of a disconnected view.
+     *
+     * @param viewId ID of the view
+     * @return true if the last view has been disconnected
+     */
+    private boolean removeHandle(int viewId) {
+        revisions.remove(viewId);
+        MvpViewHandle<S> handle;
+        boolean isLast;
+        synchronized (handles) {
+            handle = handles.remove(viewId);
+            isLast = handle != null && handles.isEmpty();
+        }
+        if (handle != null) {
+            limiter.remove(handle);
+        }
+        return isLast;
+    }
+
+    /**
+     * This method is called under presenter lock when the last view has been disconnected.
+     * Presenter is released unless it is retained by {@link MvpPresenterManager}. Nothing is done
+     * if a view has been connected since the last view was disconnected, otherwise the view that
+     * is connected later is the first one.
+     */
+    private void onDisconnected() throws Exception {
+        synchronized (handles) {
+            if (!handles.isEmpty() || !isConnected) {
+                return;
+            }
+            isConnected = false;
+            isRetained = manager.retain(this);
+            if (isRetained) {
+                return;
+            }
+        }
+        onLastViewDisconnected();
+    }
+
+    /**
+     * This method is called by {@link MvpPresenterManager} when retained presenter is evicted.
+     * Presenter is released if it has not been connected again.
+     */
+    void evict() {
+        mailbox.execute(() -> executeLocked(() -> {
+            synchronized (handles) {
+                if (!isRetained) {
+                    return;
+                }
+                isRetained = false;
+            }
+            onLastViewDisconnected();
+        }));
+    }
+
+    /**
+     * This method is called by {@link MvpPresenterManager} when prepared presenter has not been
+     * adopted by a view. Presenter has not been initialized, it is released without connection.
+     */
+    void discard() {
+        mailbox.execute(() -> executeLocked(this::onLastViewDisconnected));
+    }
+
     /**
      * Predicate that indicates that presenter has no attached views
      *
      * @return true if there is no attached views
      */
+    @MvpReadOnly
     @Override
     public final boolean isDisconnected() {
         return handles.isEmpty();
     }
 
+    @MvpReadOnly
     @Override
     public int getId() {
         return id;
@@ -158,7 +286,9 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
     }
 
     /**
-     * This method returns executor that handles method calls of this presenter.
+     * This method returns shared executor that drains mailboxes of all presenters. Tasks submitted
+     * to this executor directly are not ordered with presenter handlers, use
+     * {@link #submit(Executable)} to run task in the presenter serial context.
      *
      * @return {@link ExecutorService} instance
      */
@@ -166,6 +296,11 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
         return executor;
     }
 
+    @NonNull
+    Consumer<Throwable> getErrorHandler() {
+        return errorHandler;
+    }
+
     /**
      * This method sends current state to attached views to render changes.
      * Method is synchronized to keep state order otherwise state with less revision number may
@@ -173,21 +308,64 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
      * bigger revision number.
      */
     protected final synchronized void commit() {
-        commit.cancel(false);
+        commit.cancel();
         if (state.isChanged() || state.isInitial()) {
-            S snapshot = cloneState();
-            for (MvpViewHandle<S> handle : handles.values()) {
-                handle.post(snapshot);
+            if (state.isRecording()) {
+                postDelta();
+            } else {
+                S snapshot = cloneState();
+                for (MvpViewHandle<S> handle : handles.values()) {
+                    handle.post(snapshot);
+                }
             }
             afterCommit();
             state.clearChanged();
         }
     }
 
+    /**
+     * This method posts changes recorded since the last commit to views that have got the previous
+     * revision of the state. Other views get their own full copies of the state since a view
+     * applies delta to its copy.
+     */
+    private void postDelta() {
+        MvpDelta<S> delta = state.takeDelta();
+        for (Map.Entry<Integer, MvpViewHandle<S>> entry : handles.entrySet()) {
+            Integer revision = revisions.get(entry.getKey());
+            if (revision != null && revision == delta.getRevision() - 1) {
+                revisions.put(entry.getKey(), delta.getRevision());
+                entry.getValue().postDelta(delta);
+            } else {
+                postCopy(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void postCopy(int viewId, MvpViewHandle<S> handle) {
+        S copy = (S) state.cloneLastRevision();
+        revisions.put(viewId, copy.getRevision());
+        handle.post(copy);
+    }
+
+    /**
+     * This method posts full state to a view that has been connected. Pending changes of a state
+     * that records changes are committed, so they are not applied twice by the view.
+     */
+    private synchronized void postState(int viewId, MvpViewHandle<S> handle) {
+        if (!state.isRecording()) {
+            handle.post(cloneState());
+        } else if (state.isChanged() || state.isInitial()) {
+            revisions.remove(viewId);
+            commit();
+        } else {
+            postCopy(viewId, handle);
+        }
+    }
+
     protected final synchronized void commit(long millis) {
         if (millis > 0) {
-            commit.cancel(false);
-            commit = schedule(this::commit, millis, TimeUnit.MILLISECONDS);
+            // pending commit is moved in place
+            commit.set(millis);
         } else {
             commit();
         }
@@ -215,17 +393,45 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
     }
 
     /**
-     * Submits task to execution
+     * Submits task to the presenter mailbox. Tasks of the same presenter are run one by one in
+     * submission order.
      *
      * @param executable {@link Executable} task to be invoked
      * @return {@link Future} instance
      */
     public final Future<?> submit(Executable executable) {
-        return executor.submit(() -> executeSync(executable, false));
+        FutureTask<?> future = new FutureTask<>(() -> executeSync(executable, false), null);
+        mailbox.execute(future);
+        return future;
     }
 
     /**
-     * Schedule periodic task at fixed rate
+     * Submits task to the presenter mailbox replacing pending task with the same key if the latter
+     * has not been started yet.
+     *
+     * @param key        key of the task
+     * @param executable {@link Executable} task to be invoked
+     */
+    final void submitLatest(HandlerKey key, Executable executable) {
+        mailbox.executeLatest(key, () -> executeSync(executable, false));
+    }
+
+    /**
+     * Submits task to the presenter mailbox when debounce and throttle intervals of the key allow
+     * it. Only the latest task of the key is run when intervals are elapsed.
+     *
+     * @param key        key of the task
+     * @param debounce   debounce interval in milliseconds
+     * @param throttle   throttle interval in milliseconds
+     * @param executable {@link Executable} task to be invoked
+     */
+    final void submitLimited(HandlerKey key, long debounce, long throttle, Executable executable) {
+        limiter.submit(key, debounce, throttle, () -> executeSync(executable, false));
+    }
+
+    /**
+     * Schedule periodic task at fixed rate. Task is run in the presenter serial context, so it is
+     * never run concurrently with handlers.
      *
      * @param executable {@link Executable} task to be invoked
      * @param time     time
@@ -233,13 +439,32 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
      * @return {@link ScheduledFuture} instance
      */
     protected final synchronized ScheduledFuture<?> schedulePeriodic(Executable executable, long time, TimeUnit unit) {
-        ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(() -> executeSync(executable, false), time, time, unit);
+        long period = Math.max(1, unit.toMillis(time));
+        ScheduledFuture<?> future = mailbox.schedule(() -> executeSync(executable, false), period, period);
         collectFuture(future, executable);
         return future;
     }
 
     /**
-     * Schedule single shot task
+     * Subscribe periodic task to ticks of the shared tick service. Ticks are aligned with wall
+     * clock, so tasks of the same period of all presenters are run together, e.g. at the beginning
+     * of every second. Ticks are not delivered while presenter has no started views. It is
+     * suitable for clocks and timers that are displayed by views.
+     *
+     * @param executable {@link Executable} task to be invoked
+     * @param time       period
+     * @param unit       time units
+     * @return {@link ScheduledFuture} instance that is cancelled to unsubscribe
+     */
+    protected final synchronized ScheduledFuture<?> subscribeToTicks(Executable executable, long time, TimeUnit unit) {
+        ScheduledFuture<?> future = ticks.subscribe(this, mailbox, () -> executeSync(executable, false),
+                Math.max(1, unit.toMillis(time)));
+        collectFuture(future, executable);
+        return future;
+    }
+
+    /**
+     * Schedule single shot task. Task is run in the presenter serial context.
      *
      * @param executable {@link Executable} task to be invoked
      * @param time     time
@@ -247,24 +472,28 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
      * @return {@link ScheduledFuture} instance
      */
     protected final synchronized ScheduledFuture<?> schedule(Executable executable, long time, TimeUnit unit) {
-        ScheduledFuture<?> future = scheduler.schedule(() -> executeSync(executable, true), time, unit);
+        ScheduledFuture<?> future = mailbox.schedule(() -> executeSync(executable, true), unit.toMillis(time), 0);
         collectFuture(future, executable);
         return future;
     }
 
     /**
-     * Executes method in synchronized context with respect to presenter life cycle and handles errors
+     * Executes method in synchronized context with respect to presenter life cycle and handles errors.
+     * Invocation is a presenter turn, view handle calls made during it are delivered to the main
+     * thread in one message.
      * @param executable {@link Executable} task to be invoked
      * @param isRemoveFuture if true then remove future from the collection
      */
     private synchronized void executeSync(Executable executable, boolean isRemoveFuture) {
         try {
+            beginTurn();
             if (!isDisconnected()) {
                 executable.execute();
             }
         } catch (Exception e) {
             errorHandler.accept(e);
         } finally {
+            endTurn();
             if (isRemoveFuture) {
                 futures.remove(executable);
             }
@@ -275,20 +504,169 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
      * This method is used by {@link ProxyHandler} to call presenter methods in synchronized context
      *
      * @param <T>      type of returned argument
+     * @param method   name of the called method
      * @param callable {@link Callable} instance
      * @param isThrow throw exception on error
      * @return result of {@link Callable#call()}
      */
-    synchronized <T> T callSync(Callable<T> callable, boolean isThrow) {
+    <T> T callSync(String method, Callable<T> callable, boolean isThrow) {
+        LockWatchdog.Wait wait = beginWait(method);
+        synchronized (this) {
+            endWait(wait);
+            try {
+                beginTurn();
+                return callable.call();
+            } catch (Exception e) {
+                errorHandler.accept(e);
+                if (isThrow) {
+                    throw new RuntimeException(e);
+                }
+            } finally {
+                endTurn();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * This method is called under presenter lock before a handler is run. It starts collecting of
+     * view handle calls and restores the state if presenter has hibernated. Every call must be
+     * followed by {@link #endTurn()} even if this method throws.
+     */
+    void beginTurn() {
+        enterLock();
+        MainThreadBatch.begin();
+        if (isHibernated) {
+            restore();
+            // presenter woken up by a task or broadcast hibernates again when it is idle
+            if (!observer.isActive()) {
+                setHibernationAlarm();
+            }
+        }
+    }
+
+    /**
+     * This method finishes turn started by {@link #beginTurn()}, view handle calls are posted to
+     * the main thread.
+     */
+    void endTurn() {
+        MainThreadBatch.end();
+        exitLock();
+    }
+
+    /**
+     * This method is called when presenter lock has been taken by a synchronized entry point. The
+     * thread is tracked as lock owner to let lock watchdog capture its stack.
+     */
+    private void enterLock() {
+        if (ownerDepth++ == 0 && manager.getWatchdog() != null) {
+            owner = Thread.currentThread();
+        }
+    }
+
+    /**
+     * This method is called before synchronized entry point releases presenter lock
+     */
+    private void exitLock() {
+        if (--ownerDepth == 0 && owner != null) {
+            owner = null;
+        }
+    }
+
+    /**
+     * This method runs task under presenter lock outside of a presenter turn and handles errors
+     *
+     * @param executable {@link Executable} task to be invoked
+     */
+    private synchronized void executeLocked(Executable executable) {
+        enterLock();
         try {
-            return callable.call();
+            executable.execute();
         } catch (Exception e) {
             errorHandler.accept(e);
-            if (isThrow) {
-                throw new RuntimeException(e);
-            }
+        } finally {
+            exitLock();
         }
-        return null;
+    }
+
+    /**
+     * This method writes the state to a file and releases it if the state implements
+     * {@link MvpHibernatable} and presenter has no started views. Uncommitted state is not written.
+     */
+    private synchronized void hibernate() {
+        if (isHibernated || !(state instanceof MvpHibernatable) || observer.isActive() ||
+                isDisconnected() || state.isChanged()) {
+            return;
+        }
+        File file = manager.getHibernationFile(id);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            ((MvpHibernatable) state).writeTo(output);
+        } catch (IOException e) {
+            file.delete();
+            errorHandler.accept(e);
+            return;
+        }
+        ((MvpHibernatable) state).release();
+        isHibernated = true;
+        Log.d(tag, "hibernated, " + file.length() + " bytes");
+    }
+
+    /**
+     * This method schedules hibernation if it is enabled and the state supports it
+     */
+    private void setHibernationAlarm() {
+        long delay = manager.getHibernationDelay();
+        if (delay > 0 && state instanceof MvpHibernatable) {
+            hibernation.set(delay);
+        }
+    }
+
+    /**
+     * This method reads the state of hibernated presenter. If the file is missing or it can not be
+     * read then the error is passed to the error handler and presenter goes on with released state,
+     * all its fields are marked as changed to be rendered by views.
+     */
+    private void restore() {
+        File file = manager.getHibernationFile(id);
+        isHibernated = false;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            ((MvpHibernatable) state).readFrom(input);
+            Log.d(tag, "restored from hibernation");
+        } catch (IOException | RuntimeException e) {
+            // partially read fields are released again
+            ((MvpHibernatable) state).release();
+            state.setChanged(true);
+            errorHandler.accept(new RuntimeException("state can not be restored from " + file, e));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * This method registers wait of the main thread for presenter lock if lock watchdog is enabled.
+     * See {@link MvpPresenterManager#setLockWatchdog(long)} for details.
+     *
+     * @param method name of the called method
+     * @return wait to be passed to {@link #endWait(LockWatchdog.Wait)} or null
+     */
+    LockWatchdog.Wait beginWait(String method) {
+        LockWatchdog watchdog = manager.getWatchdog();
+        return watchdog == null ? null : watchdog.begin(this, method);
+    }
+
+    /**
+     * This method is called when the lock has been taken
+     *
+     * @param wait wait returned by {@link #beginWait(String)}
+     */
+    void endWait(LockWatchdog.Wait wait) {
+        if (wait != null) {
+            wait.end();
+        }
+    }
+
+    Thread getOwner() {
+        return owner;
     }
 
     /**
@@ -429,7 +807,8 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
     /**
      * This method is called when master view is connected to current presenter. This method is to be
      * overridden to place initialization code that fills {@link MvpBasePresenter#state} with initial
-     * values and subscribes to necessary events.
+     * values and subscribes to necessary events. It is not called again when presenter retained by
+     * {@link MvpPresenterManager#setRetention(int, long)} is reused.
      *
      * @param handle {@link MvpViewHandle MvpViewHandle} interface reference
      * @param arguments {@link Bundle} that keeps arguments attached to a view
@@ -486,6 +865,13 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
             future.cancel(false);
         }
         futures.clear();
+        limiter.clear();
+        ticks.setActive(this, false);
+        hibernation.cancel();
+        if (isHibernated) {
+            isHibernated = false;
+            manager.getHibernationFile(id).delete();
+        }
         manager.releasePresenter(this);
     }
 
@@ -504,7 +890,7 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
         @Override
         public void onReceive(Context context, Intent intent) {
             PendingResult result = goAsync();
-            executor.submit(() -> {
+            mailbox.execute(() -> {
                 executeSync(() -> onBroadcastReceived(intent, result), false);
                 result.finish();
             });
@@ -514,9 +900,16 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
     private class ViewLifecycleObserver implements LifecycleObserver {
         private final AtomicInteger started = new AtomicInteger();
 
+        boolean isActive() {
+            return started.get() > 0;
+        }
+
         @OnLifecycleEvent(Lifecycle.Event.ON_START)
         public void onStarted() {
             if (started.incrementAndGet() == 1) {
+                hibernation.cancel();
+                ticks.setActive(MvpBasePresenter.this, true);
+                // hibernated state is restored by this handler before user interacts with views
                 submit(MvpBasePresenter.this::onViewsActive);
             }
         }
@@ -524,7 +917,9 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
         @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
         public void onStopped() {
             if (started.decrementAndGet() == 0) {
+                ticks.setActive(MvpBasePresenter.this, false);
                 submit(MvpBasePresenter.this::onViewsInactive);
+                setHibernationAlarm();
             }
         }
     }
@@ -532,7 +927,16 @@ public abstract class MvpBasePresenter<S extends MvpState> extends ContextWrappe
     private class PresenterComponentCallbacks implements ComponentCallbacks2 {
         @Override
         public void onTrimMemory(int level) {
-            submit(() -> MvpBasePresenter.this.onTrimMemory(level));
+            mailbox.execute(() -> {
+                // hibernated presenter has nothing to trim and it is not woken up
+                if (!isHibernated) {
+                    executeSync(() -> MvpBasePresenter.this.onTrimMemory(level), false);
+                }
+                // hiding of UI does not mean that memory is low
+                if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+                    executeLocked(MvpBasePresenter.this::hibernate);
+                }
+            });
         }
 
         @Override
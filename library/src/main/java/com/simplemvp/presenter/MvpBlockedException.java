@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.presenter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * This exception is passed to the error handler of {@link MvpPresenterManager} when the main
+ * thread has waited for a presenter lock longer than the watchdog threshold. See
+ * {@link MvpPresenterManager#setLockWatchdog(long)} for details. Stack trace of the exception is
+ * the stack of the thread that has held the lock if it has been captured.
+ */
+public final class MvpBlockedException extends RuntimeException {
+    private final String method;
+    private final String handler;
+    private final long waitTime;
+
+    MvpBlockedException(String presenter, String method, String handler, long waitTime) {
+        super("main thread has waited " + waitTime + " ms for " + presenter + " lock in " + method +
+                (handler == null ? "" : ", lock has been held by " + handler));
+        this.method = method;
+        this.handler = handler;
+        this.waitTime = waitTime;
+    }
+
+    /**
+     * This method returns name of the presenter method that has been called on the main thread
+     *
+     * @return method name
+     */
+    @NonNull
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * This method returns name of the presenter handler that has held the lock
+     *
+     * @return handler name or null if the lock holder has not been captured
+     */
+    @Nullable
+    public String getHandler() {
+        return handler;
+    }
+
+    /**
+     * This method returns time the main thread has waited for the lock
+     *
+     * @return wait time in milliseconds
+     */
+    public long getWaitTime() {
+        return waitTime;
+    }
+}
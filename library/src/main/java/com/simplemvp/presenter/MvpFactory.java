@@ -9,12 +9,19 @@ import android.util.Log;
 
 import com.simplemvp.common.MvpState;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Default factory that construct presenter and state using reflection.
+ * Default factory that construct presenter and state using reflection. Constructors are resolved
+ * once per class and shared by all factories, so {@link MvpSingleInstanceFactory} and custom
+ * factories that call this class methods do not pay for reflective lookup on every instantiation.
  */
 public class MvpFactory {
+    private final static Map<Class<?>, Constructor<?>> presenterConstructors = new ConcurrentHashMap<>();
+    private final static Map<Class<?>, Constructor<?>> stateConstructors = new ConcurrentHashMap<>();
     protected final String tag = getClass().getSimpleName();
     protected volatile MvpPresenterManager manager;
     private volatile Context context;
@@ -33,19 +40,39 @@ public class MvpFactory {
 
     public <S extends MvpState, P extends MvpBasePresenter<S>> P newPresenter(Class<P> pClass, Class<S> sClass, S state) {
         try {
-            return pClass.getConstructor(Context.class, sClass).newInstance(context, state);
+            Constructor<P> constructor = (Constructor<P>) presenterConstructors.get(pClass);
+            // presenter class is usually constructed with the same state class
+            if (constructor == null || constructor.getParameterTypes()[1] != sClass) {
+                constructor = pClass.getConstructor(Context.class, sClass);
+                presenterConstructors.put(pClass, constructor);
+            }
+            return constructor.newInstance(context, state);
         } catch (NoSuchMethodException | IllegalAccessException | InstantiationException | InvocationTargetException e) {
             Log.e(tag, "error: ", e);
-            throw new RuntimeException(e);
+            throw newException(e);
         }
     }
 
     public <S extends MvpState> S newState(Class<S> clazz) {
         try {
-            return clazz.getConstructor().newInstance();
+            Constructor<S> constructor = (Constructor<S>) stateConstructors.get(clazz);
+            if (constructor == null) {
+                constructor = clazz.getConstructor();
+                stateConstructors.put(clazz, constructor);
+            }
+            return constructor.newInstance();
         } catch (NoSuchMethodException | IllegalAccessException | InstantiationException | InvocationTargetException e) {
             Log.e(tag, "error: ", e);
-            throw new RuntimeException(e);
+            throw newException(e);
         }
     }
+
+    /**
+     * This method returns exception thrown by constructor itself if it is unchecked, so it is not
+     * wrapped twice.
+     */
+    private static RuntimeException newException(ReflectiveOperationException e) {
+        Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+    }
 }
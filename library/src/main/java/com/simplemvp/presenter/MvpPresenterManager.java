@@ -5,42 +5,88 @@
 package com.simplemvp.presenter;
 
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.ContextWrapper;
+import android.content.res.Configuration;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.util.Consumer;
 
+import com.simplemvp.common.MainThreadBatch;
+import com.simplemvp.common.MvpDeliveryListener;
+import com.simplemvp.common.MvpHibernatable;
 import com.simplemvp.common.MvpPresenter;
 import com.simplemvp.common.MvpState;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class keeps presenter instances and instantiate ones by request
  */
 public final class MvpPresenterManager extends ContextWrapper {
+    private final static long TIMER_TICK = 10;
+    private final static String HIBERNATION_DIR = "mvp-hibernation";
+    /**
+     * limits of presenters that are prepared for upcoming views, presenter that is not adopted in
+     * time is released
+     */
+    private final static int PREPARED_CAPACITY = 8;
+    private final static long PREPARED_MAX_AGE = 60_000;
     private static volatile MvpPresenterManager instance;
     private final String tag = getClass().getSimpleName();
-    private final Map<Integer, Composite<?>> composites;
+    /**
+     * presenters by ID
+     */
+    private final LongConcurrentMap<Composite<?>> composites;
+    /**
+     * keyed presenters by class, see {@link #getScopedPresenterInstance(Class, Class, long)}
+     */
+    private final Map<Class<?>, LongConcurrentMap<Composite<?>>> scopes;
     private final Map<Class<? extends MvpBasePresenter>, MvpFactory> factories;
-    private final ScheduledExecutorService scheduledExecutor;
+    /**
+     * timer of all presenters, tick is short enough for delayed commits and debouncing
+     */
+    private final TimingWheel wheel;
+    private final TickService ticks;
+    /**
+     * presenters that have no connected views, they are kept to be reused by new views
+     */
+    private final RetentionCache<Composite<?>> retained;
+    /**
+     * presenters that are constructed in background for upcoming views
+     */
+    private final RetentionCache<FutureTask<Composite<?>>> prepared;
     private final MvpFactory factory;
     private volatile ExecutorService executor;
     private volatile Consumer<Throwable> errorHandler;
+    private volatile LockWatchdog watchdog;
+    private volatile long hibernationDelay;
+    private File hibernationDir;
 
     private MvpPresenterManager(Context context) {
         super(context);
-        this.executor = Executors.newSingleThreadExecutor();
-        this.composites = Collections.synchronizedMap(new TreeMap<>());
+        this.executor = newDefaultExecutor();
+        this.composites = new LongConcurrentMap<>();
+        this.scopes = new ConcurrentHashMap<>();
         this.factories = Collections.synchronizedMap(new TreeMap<>((o1, o2) -> o1.getName().compareTo(o2.getName())));
-        this.scheduledExecutor = Executors.newScheduledThreadPool(1);
+        this.wheel = new TimingWheel(TIMER_TICK);
+        this.ticks = new TickService(wheel);
+        this.retained = new RetentionCache<>(wheel, composite -> composite.presenter.evict());
+        this.prepared = new RetentionCache<>(wheel, this::discard);
+        this.prepared.setLimits(PREPARED_CAPACITY, PREPARED_MAX_AGE);
         this.errorHandler = e -> Log.e(tag, "error: ", e);
         this.factory = new MvpFactory();
     }
@@ -57,23 +103,186 @@ public final class MvpPresenterManager extends ContextWrapper {
         return instance;
     }
 
+    /**
+     * This method creates bounded pool that drains presenter mailboxes. Handlers of the same
+     * presenter are run one by one but different presenters are served in parallel.
+     *
+     * @return {@link ExecutorService} instance
+     */
+    private static ExecutorService newDefaultExecutor() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private void initDefaultFactory() {
         factory.inject(this);
+        registerComponentCallbacks(new ManagerComponentCallbacks());
     }
 
+    /**
+     * This method sets up executor and error handler. It should be called before any presenter is
+     * instantiated, {@link android.app.Application#onCreate()} is a suitable place to do it.
+     *
+     * @param executor shared executor that drains presenter mailboxes. Multithreaded executor allows
+     *                 handlers of different presenters to run in parallel.
+     * @param handler  error handler
+     */
     public void initialize(@NonNull ExecutorService executor, @NonNull Consumer<Throwable> handler) {
         this.executor = executor;
         this.errorHandler = handler;
     }
 
+    /**
+     * This method enables watchdog that detects that the main thread waits for a presenter lock
+     * longer than provided threshold. Such wait is reported to the error handler as
+     * {@link MvpBlockedException} that keeps name of the called method, wait time and stack of the
+     * handler that has held the lock. Watchdog is disabled by default, it is intended to be used in
+     * debug builds.
+     *
+     * @param millis threshold in milliseconds, zero disables watchdog
+     */
+    public synchronized void setLockWatchdog(long millis) {
+        if (watchdog != null) {
+            watchdog.stop();
+            watchdog = null;
+        }
+        if (millis > 0) {
+            LockWatchdog watchdog = new LockWatchdog(this, millis);
+            watchdog.start();
+            this.watchdog = watchdog;
+        }
+    }
+
+    /**
+     * This method sets listener that measures latency of calls that presenters make through
+     * {@link com.simplemvp.common.MvpViewHandle}. Listener is notified on the main thread with
+     * time from posting of a main thread message to its execution and to the beginning of the
+     * frame that renders it. It is intended to tune
+     * {@link com.simplemvp.common.MvpView#getDeliveryMode()} of views.
+     *
+     * @param listener listener instance or null to disable measurement
+     */
+    public void setDeliveryListener(@Nullable MvpDeliveryListener listener) {
+        MainThreadBatch.setListener(listener);
+    }
+
+    /**
+     * This method sets inactivity time after which a presenter hibernates. Presenter is inactive
+     * when all its views are stopped, its state must implement {@link MvpHibernatable}. State of
+     * hibernated presenter is written to a file and released, it is restored before the next
+     * handler is run or a view is connected. Presenters hibernate regardless of this time when
+     * memory is running low. Hibernation by inactivity time is disabled by default.
+     *
+     * @param millis inactivity time in milliseconds, zero disables hibernation by inactivity time
+     */
+    public void setHibernationDelay(long millis) {
+        this.hibernationDelay = millis;
+    }
+
+    long getHibernationDelay() {
+        return hibernationDelay;
+    }
+
+    /**
+     * This method returns file that keeps state of hibernated presenter. Files left by the previous
+     * process are removed when the directory is accessed for the first time.
+     *
+     * @param presenterId presenter ID
+     * @return {@link File} instance
+     */
+    @NonNull
+    synchronized File getHibernationFile(int presenterId) {
+        if (hibernationDir == null) {
+            File dir = new File(getFilesDir(), HIBERNATION_DIR);
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                Log.w(tag, "can not create " + dir);
+            }
+            hibernationDir = dir;
+        }
+        return new File(hibernationDir, Integer.toString(presenterId));
+    }
+
+    /**
+     * This method enables retention of presenters which views have been disconnected. Such
+     * presenter is not released immediately, so a new view that requests presenter of the same
+     * class and key using {@link #newPresenterInstance(Class, Class, String)} gets the warm
+     * instance and skips its initialization. {@link MvpBasePresenter#onLastViewDisconnected()} is
+     * deferred until the presenter is evicted. The least recently released presenters are evicted
+     * when there are more than capacity presenters, when they are older than maximum age or when
+     * memory is running low. Retention is disabled by default.
+     *
+     * @param capacity maximum number of retained presenters, zero disables retention
+     * @param maxAge   maximum time in milliseconds a presenter is retained
+     */
+    public void setRetention(int capacity, long maxAge) {
+        if (capacity < 0 || (capacity > 0 && maxAge <= 0)) {
+            throw new IllegalArgumentException("invalid retention: " + capacity + ", " + maxAge);
+        }
+        retained.setLimits(capacity, maxAge);
+    }
+
+    /**
+     * This method is called by presenter when its last view has been disconnected. Presenter
+     * calls it under its handles lock, so no view can be connected meanwhile.
+     *
+     * @param presenter presenter instance
+     * @return true if presenter is retained, false if it is to be released
+     */
+    boolean retain(@NonNull MvpBasePresenter<?> presenter) {
+        Composite<?> composite = composites.get(presenter.getId());
+        if (composite == null) {
+            return false;
+        }
+        synchronized (retained) {
+            if (!retained.put(composite.key, composite)) {
+                return false;
+            }
+        }
+        Log.d(tag, "retain presenter: " + presenter);
+        return true;
+    }
+
+    /**
+     * This method is called by presenter when its first view has been connected. Retained
+     * presenter can be connected by ID, so it is not evicted anymore.
+     *
+     * @param presenter presenter instance
+     */
+    void onConnected(@NonNull MvpBasePresenter<?> presenter) {
+        Composite<?> composite = composites.get(presenter.getId());
+        if (composite != null) {
+            synchronized (retained) {
+                retained.remove(composite.key, composite);
+            }
+        }
+    }
+
+    LockWatchdog getWatchdog() {
+        return watchdog;
+    }
+
+    @NonNull
+    TickService getTickService() {
+        return ticks;
+    }
+
     @NonNull
     ExecutorService getExecutor() {
         return executor;
     }
 
     @NonNull
-    ScheduledExecutorService getScheduledExecutor() {
-        return scheduledExecutor;
+    TimingWheel getTimingWheel() {
+        return wheel;
     }
 
     @NonNull
@@ -94,8 +303,7 @@ public final class MvpPresenterManager extends ContextWrapper {
     }
 
     /**
-     * This method returns presenter instance of desired type. At the current moment there could be
-     * only one instance per type.
+     * This method returns new presenter instance of desired type.
      *
      * @param pClass class of presenter
      * @param sClass class of state
@@ -103,17 +311,142 @@ public final class MvpPresenterManager extends ContextWrapper {
      */
     @NonNull
     public <S extends MvpState, P extends MvpBasePresenter<S>, I extends MvpPresenter<S>> I newPresenterInstance(Class<? extends P> pClass, Class<S> sClass) {
+        return newPresenterInstance(pClass, sClass, null);
+    }
+
+    /**
+     * This method returns presenter instance of desired type. If retention is enabled then
+     * retained presenter of the same class and key is reused.
+     *
+     * @param pClass class of presenter
+     * @param sClass class of state
+     * @param key    key that distinguishes presenters of the same class, e.g. ID of displayed item
+     * @return new or retained presenter
+     * @see #setRetention(int, long)
+     */
+    @NonNull
+    public <S extends MvpState, P extends MvpBasePresenter<S>, I extends MvpPresenter<S>> I newPresenterInstance(Class<? extends P> pClass, Class<S> sClass, @Nullable String key) {
+        return (I) obtainComposite(pClass, sClass, new RetentionKey(pClass, sClass, key), null, 0).proxy;
+    }
+
+    /**
+     * This method returns retained, prepared or new presenter of the key. New presenter is
+     * registered when it is completely constructed and initialized.
+     *
+     * @param scope    scope of keyed presenter or null
+     * @param scopeKey key of presenter in the scope
+     */
+    @NonNull
+    private <S extends MvpState, P extends MvpBasePresenter<S>> Composite<S> obtainComposite(Class<? extends P> pClass, Class<S> sClass, RetentionKey retentionKey,
+                                                                                             @Nullable LongConcurrentMap<Composite<?>> scope, long scopeKey) {
+        Composite<S> composite = (Composite<S>) retained.take(retentionKey);
+        if (composite != null) {
+            Log.d(tag, "reuse presenter: " + composite.presenter);
+            return composite;
+        }
+        FutureTask<Composite<?>> future = prepared.take(retentionKey);
+        if (future != null) {
+            // presenter is constructed on the calling thread if background task has not been started
+            future.run();
+            composite = (Composite<S>) getPrepared(future);
+        } else {
+            composite = newComposite(pClass, sClass, retentionKey, scope, scopeKey);
+        }
+        composite.presenter.initialize();
+        composites.put(composite.presenter.getId(), composite);
+        Log.d(tag, "new presenter: " + composite.presenter);
+        return composite;
+    }
+
+    /**
+     * This method constructs presenter for an upcoming view on a background thread. View adopts
+     * prepared presenter when it calls {@link #newPresenterInstance(Class, Class)}, so presenter
+     * and state constructors are not run on the main thread when view is being created. There is
+     * at most one prepared presenter per class and state class, it is released if no view adopts
+     * it within a minute.
+     *
+     * @param pClass class of presenter
+     * @param sClass class of state
+     */
+    public <S extends MvpState, P extends MvpBasePresenter<S>> void preparePresenterInstance(Class<? extends P> pClass, Class<S> sClass) {
+        preparePresenterInstance(pClass, sClass, null);
+    }
+
+    /**
+     * This method constructs presenter for an upcoming view on a background thread. View adopts
+     * prepared presenter when it calls {@link #newPresenterInstance(Class, Class, String)} with the
+     * same class, state class and key. Retained presenter is preferred to prepared one.
+     *
+     * @param pClass class of presenter
+     * @param sClass class of state
+     * @param key    key that distinguishes presenters of the same class
+     */
+    public <S extends MvpState, P extends MvpBasePresenter<S>> void preparePresenterInstance(Class<? extends P> pClass, Class<S> sClass, @Nullable String key) {
+        RetentionKey retentionKey = new RetentionKey(pClass, sClass, key);
+        FutureTask<Composite<?>> future = new FutureTask<>(() -> newComposite(pClass, sClass, retentionKey, null, 0));
+        if (prepared.putIfAbsent(retentionKey, future)) {
+            executor.execute(future);
+        }
+    }
+
+    /**
+     * This method releases presenter that has been prepared but not adopted by a view. It is called
+     * under the cache lock, so the presenter is waited for on executor.
+     *
+     * @param future construction of prepared presenter
+     */
+    private void discard(FutureTask<Composite<?>> future) {
+        executor.execute(() -> {
+            // presenter that is being constructed is released when it is ready
+            future.run();
+            try {
+                getPrepared(future).presenter.discard();
+            } catch (RuntimeException e) {
+                errorHandler.accept(e);
+            }
+        });
+    }
+
+    /**
+     * This method constructs presenter, its state and proxy. Presenter is not initialized and it is
+     * not registered, so it can be constructed on any thread.
+     */
+    @NonNull
+    private <S extends MvpState, P extends MvpBasePresenter<S>> Composite<S> newComposite(Class<? extends P> pClass, Class<S> sClass, RetentionKey key,
+                                                                                          @Nullable LongConcurrentMap<Composite<?>> scope, long scopeKey) {
         MvpFactory factory = factories.get(pClass);
         if (factory == null) {
             factory = this.factory;
         }
         S state = factory.newState(sClass);
-        P presenter = factory.newPresenter(pClass, sClass, state);
-        I proxy = ProxyHandler.newProxy(presenter);
-        presenter.initialize();
-        composites.put(presenter.getId(), new Composite<>(presenter, proxy));
-        Log.d(tag, "new presenter: " + presenter);
-        return proxy;
+        P presenter = factory.newPresenter((Class<P>) pClass, sClass, state);
+        return new Composite<>(presenter, newProxy(presenter), key, scope, scopeKey);
+    }
+
+    @NonNull
+    private static Composite<?> getPrepared(FutureTask<Composite<?>> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * This method instantiates proxy that is generated by annotation processor. Reflective proxy is
+     * used if there is no generated class.
+     *
+     * @param presenter presenter instance
+     * @return proxy that implements all presenter interfaces
+     */
+    @NonNull
+    private <S extends MvpState, I extends MvpPresenter<S>> I newProxy(MvpBasePresenter<S> presenter) {
+        I proxy = MvpPresenterProxy.newProxy(presenter);
+        return proxy == null ? ProxyHandler.newProxy(presenter) : proxy;
     }
 
     /**
@@ -133,6 +466,42 @@ public final class MvpPresenterManager extends ContextWrapper {
         return (I) composite.proxy;
     }
 
+    /**
+     * This method returns presenter of desired type that is bound to provided key, e.g. ID of an
+     * entity displayed by a detail screen. Presenters of the same class with different keys live
+     * independently, the same instance is returned for the same key while it is not released.
+     * Retained presenter of the class and key is reused, keys of scoped presenters do not match
+     * string keys of {@link #newPresenterInstance(Class, Class, String)}.
+     *
+     * @param pClass class of presenter
+     * @param sClass class of state
+     * @param key    key of presenter
+     * @return presenter bound to the key
+     */
+    @NonNull
+    public <S extends MvpState, P extends MvpBasePresenter<S>, I extends MvpPresenter<S>> I getScopedPresenterInstance(Class<? extends P> pClass, Class<S> sClass, long key) {
+        LongConcurrentMap<Composite<?>> scope = scopes.get(pClass);
+        if (scope == null) {
+            scope = new LongConcurrentMap<>();
+            LongConcurrentMap<Composite<?>> previous = scopes.putIfAbsent(pClass, scope);
+            if (previous != null) {
+                scope = previous;
+            }
+        }
+        Composite<?> composite = scope.get(key);
+        if (composite == null) {
+            // presenter of the key is created once, it can not be released until it is in the scope
+            synchronized (scope) {
+                composite = scope.get(key);
+                if (composite == null) {
+                    composite = obtainComposite(pClass, sClass, new RetentionKey(pClass, sClass, key), scope, key);
+                    scope.put(key, composite);
+                }
+            }
+        }
+        return (I) composite.proxy;
+    }
+
     /**
      * This method checks that presenter with provided ID is instantiated
      *
@@ -150,19 +519,108 @@ public final class MvpPresenterManager extends ContextWrapper {
      */
     public void releasePresenter(@NonNull MvpPresenter<?> presenter) {
         if (presenter.isDisconnected()) {
-            if (composites.remove(presenter.getId()) != null) {
-                Log.d(tag, "release presenter: " + presenter);
+            Composite<?> composite = composites.get(presenter.getId());
+            if (composite == null) {
+                return;
+            }
+            if (composite.scope != null) {
+                // keyed presenter is removed from the scope together with the registry
+                synchronized (composite.scope) {
+                    if (!composites.remove(presenter.getId(), composite)) {
+                        return;
+                    }
+                    composite.scope.remove(composite.scopeKey, composite);
+                }
+            } else if (!composites.remove(presenter.getId(), composite)) {
+                return;
             }
+            Log.d(tag, "release presenter: " + presenter);
         }
     }
 
     private static class Composite<S extends MvpState> {
         final MvpBasePresenter<S> presenter;
         final MvpPresenter<S> proxy;
+        final RetentionKey key;
+        /**
+         * scope and key of keyed presenter
+         */
+        final LongConcurrentMap<Composite<?>> scope;
+        final long scopeKey;
 
-        Composite(MvpBasePresenter<S> presenter, MvpPresenter<S> proxy) {
+        Composite(MvpBasePresenter<S> presenter, MvpPresenter<S> proxy, RetentionKey key,
+                  LongConcurrentMap<Composite<?>> scope, long scopeKey) {
             this.presenter = presenter;
             this.proxy = proxy;
+            this.key = key;
+            this.scope = scope;
+            this.scopeKey = scopeKey;
+        }
+    }
+
+    private static final class RetentionKey {
+        final Class<?> pClass;
+        final Class<?> sClass;
+        final String key;
+        /**
+         * key of scoped presenter, it is used if string key is null
+         */
+        final long scopeKey;
+        final boolean isScoped;
+
+        RetentionKey(Class<?> pClass, Class<?> sClass, String key) {
+            this.pClass = pClass;
+            this.sClass = sClass;
+            this.key = key;
+            this.scopeKey = 0;
+            this.isScoped = false;
+        }
+
+        RetentionKey(Class<?> pClass, Class<?> sClass, long scopeKey) {
+            this.pClass = pClass;
+            this.sClass = sClass;
+            this.key = null;
+            this.scopeKey = scopeKey;
+            this.isScoped = true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RetentionKey)) {
+                return false;
+            }
+            RetentionKey other = (RetentionKey) o;
+            return pClass == other.pClass && sClass == other.sClass && isScoped == other.isScoped && scopeKey == other.scopeKey &&
+                    (key == null ? other.key == null : key.equals(other.key));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * pClass.hashCode() + sClass.hashCode()) + (key == null ? LongConcurrentMap.hash(scopeKey) : key.hashCode());
+        }
+    }
+
+    private class ManagerComponentCallbacks implements ComponentCallbacks2 {
+        @Override
+        public void onTrimMemory(int level) {
+            // hiding of UI does not mean that memory is low
+            if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+                retained.trimToSize(0);
+            } else if (level == TRIM_MEMORY_RUNNING_MODERATE) {
+                retained.trimToSize(retained.size() / 2);
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            retained.trimToSize(0);
         }
     }
 }
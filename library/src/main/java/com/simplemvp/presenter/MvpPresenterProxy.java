@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.presenter;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.util.Consumer;
+
+import com.simplemvp.common.Executable;
+import com.simplemvp.common.MainThreadBatch;
+import com.simplemvp.common.MvpPresenter;
+import com.simplemvp.common.MvpState;
+import com.simplemvp.common.MvpViewHandle;
+
+import java.lang.reflect.Constructor;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This is a base class of presenter proxies that are generated by SimpleMVP annotation processor.
+ * Generated proxy invokes presenter methods directly instead of {@link java.lang.reflect.Method#invoke}
+ * so there is no arguments boxing on every handler call. It is not intended to be extended manually.
+ */
+public abstract class MvpPresenterProxy {
+    private final static String SUFFIX = "_MvpProxy";
+    private final static String tag = MvpPresenterProxy.class.getSimpleName();
+    private final static Map<Class<?>, Constructor<?>> constructors = new ConcurrentHashMap<>();
+    private final static Set<Class<?>> missing = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final MvpBasePresenter<?> presenter;
+    private final Consumer<Throwable> errorHandler;
+
+    protected MvpPresenterProxy(MvpBasePresenter<?> presenter) {
+        this.presenter = presenter;
+        this.errorHandler = presenter.getErrorHandler();
+    }
+
+    /**
+     * This method instantiates generated proxy of the presenter.
+     *
+     * @param presenter presenter instance
+     * @return generated proxy or null if there is no generated class for the presenter
+     */
+    @Nullable
+    static <S extends MvpState, P extends MvpPresenter<S>> P newProxy(@NonNull MvpBasePresenter<S> presenter) {
+        Class<?> pClass = presenter.getClass();
+        if (missing.contains(pClass)) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = constructors.get(pClass);
+            if (constructor == null) {
+                constructor = Class.forName(pClass.getName() + SUFFIX, true, pClass.getClassLoader())
+                        .getConstructor(pClass);
+                constructors.put(pClass, constructor);
+            }
+            return (P) constructor.newInstance(presenter);
+        } catch (ClassNotFoundException e) {
+            Log.d(tag, "generated proxy is not found for " + pClass.getName());
+            missing.add(pClass);
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * This method submits handler that replaces pending invocation of the same handler for the same
+     * view. See {@link com.simplemvp.annotations.MvpHandler#coalesce()} for details.
+     *
+     * @param handler    handler index
+     * @param handle     calling view handle
+     * @param viewId     view ID
+     * @param executable handler invocation
+     */
+    protected final void submitLatest(int handler, MvpViewHandle<?> handle, int viewId, Executable executable) {
+        presenter.submitLatest(new HandlerKey(handler, handle, viewId), executable);
+    }
+
+    /**
+     * This method submits handler with respect to its debounce and throttle intervals. See
+     * {@link com.simplemvp.annotations.MvpHandler#debounceMs()} and
+     * {@link com.simplemvp.annotations.MvpHandler#throttleMs()} for details.
+     *
+     * @param handler    handler index
+     * @param handle     calling view handle
+     * @param viewId     view ID
+     * @param debounce   debounce interval in milliseconds
+     * @param throttle   throttle interval in milliseconds
+     * @param executable handler invocation
+     */
+    protected final void submitLimited(int handler, MvpViewHandle<?> handle, int viewId, long debounce,
+                                       long throttle, Executable executable) {
+        presenter.submitLimited(new HandlerKey(handler, handle, viewId), debounce, throttle, executable);
+    }
+
+    /**
+     * This method is called before presenter lock is taken to let lock watchdog detect that the
+     * main thread is blocked. See {@link MvpPresenterManager#setLockWatchdog(long)} for details.
+     *
+     * @param method name of the called method
+     * @return wait to be passed to {@link #endWait(Object)}
+     */
+    protected final Object beginWait(String method) {
+        return presenter.beginWait(method);
+    }
+
+    /**
+     * This method is called when presenter lock has been taken.
+     *
+     * @param wait value returned by {@link #beginWait(String)}
+     */
+    protected final void endWait(Object wait) {
+        presenter.endWait((LockWatchdog.Wait) wait);
+    }
+
+    /**
+     * This method starts presenter turn under presenter lock. View handle calls made during the
+     * turn are delivered to the main thread at once, see {@link MainThreadBatch}. Hibernated state
+     * is restored.
+     */
+    protected final void beginTurn() {
+        presenter.beginTurn();
+    }
+
+    /**
+     * This method finishes presenter turn started by {@link #beginTurn()}. It is called even if
+     * {@link #beginTurn()} has thrown.
+     */
+    protected final void endTurn() {
+        presenter.endTurn();
+    }
+
+    /**
+     * This method passes exception thrown by presenter method to the error handler.
+     *
+     * @param e exception to be handled
+     * @return the same exception or checked exception wrapped into {@link RuntimeException} to be
+     * rethrown if necessary
+     */
+    protected final RuntimeException onError(Exception e) {
+        errorHandler.accept(e);
+        return e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+    }
+
+    @Override
+    public String toString() {
+        return presenter.toString();
+    }
+}
@@ -6,7 +6,9 @@ package com.simplemvp.presenter;
 import com.simplemvp.common.MvpState;
 
 /**
- * This factory allows only one presenter instance to be constructed
+ * This factory allows only one presenter instance to be constructed. Use
+ * {@link MvpPresenterManager#getScopedPresenterInstance(Class, Class, long)} to keep one instance
+ * per key.
  */
 public class MvpSingleInstanceFactory extends MvpFactory {
     private int id;
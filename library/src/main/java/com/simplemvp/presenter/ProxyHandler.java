@@ -8,45 +8,90 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import com.simplemvp.annotations.MvpHandler;
+import com.simplemvp.annotations.MvpReadOnly;
+import com.simplemvp.common.MethodTable;
 import com.simplemvp.common.MvpPresenter;
 import com.simplemvp.common.MvpState;
+import com.simplemvp.common.MvpViewHandle;
 
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 class ProxyHandler<S extends MvpState> implements InvocationHandler {
+    /**
+     * metadata of presenter classes, classes are scanned once
+     */
+    private final static Map<Class<?>, Metadata> cache = new ConcurrentHashMap<>();
     private final MvpBasePresenter<S> presenter;
-    private final Map<Method, MvpHandler> handlers;
+    private final MethodTable<MvpHandler> handlers;
+    private final MethodTable<MvpReadOnly> readOnly;
 
-    private ProxyHandler(MvpBasePresenter<S> presenter) {
+    private ProxyHandler(MvpBasePresenter<S> presenter, Metadata metadata) {
         this.presenter = presenter;
-        this.handlers = getMethodAnnotations(presenter);
+        this.handlers = metadata.handlers;
+        this.readOnly = metadata.readOnly;
     }
 
-    private static <S extends MvpState> Map<Method, MvpHandler> getMethodAnnotations(MvpPresenter<S> presenter) {
-        String tag = presenter.getClass().getSimpleName();
-        Map<Method, MvpHandler> result = new TreeMap<>((o1, o2) -> o1.getName().compareTo(o2.getName()));
-        for (Method method : presenter.getClass().getMethods()) {
+    private static Metadata getMetadata(Class<?> pClass) {
+        Metadata metadata = cache.get(pClass);
+        if (metadata == null) {
+            metadata = new Metadata(getMethodAnnotations(pClass), getReadOnlyMethods(pClass),
+                    getAllImplementedInterfaces(pClass));
+            Metadata previous = cache.putIfAbsent(pClass, metadata);
+            if (previous != null) {
+                metadata = previous;
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * This method returns table of annotated methods of provided class. Interface methods are
+     * matched with implementation by signature, so every overloaded handler has its own slot and
+     * {@link MvpHandler} annotation.
+     */
+    private static MethodTable<MvpHandler> getMethodAnnotations(Class<?> pClass) {
+        String tag = pClass.getSimpleName();
+        List<Method> methods = new ArrayList<>();
+        List<MvpHandler> handlers = new ArrayList<>();
+        for (Method method : pClass.getMethods()) {
             MvpHandler handler = method.getAnnotation(MvpHandler.class);
             if (handler != null) {
-                if (handler.executor()) {
-                    if (method.getReturnType().equals(void.class) || method.getReturnType().equals(Void.class)) {
-                        result.put(method, handler);
-                    } else {
-                        Log.w(tag, "@MvpHandler method " + method.getName() + " is ignored since return value is incorrect");
-                    }
+                if (!handler.executor() || method.getReturnType().equals(void.class) || method.getReturnType().equals(Void.class)) {
+                    methods.add(method);
+                    handlers.add(handler);
                 } else {
-                    result.put(method, handler);
+                    Log.w(tag, "@MvpHandler method " + method.getName() + " is ignored since return value is incorrect");
                 }
             }
         }
-        return result;
+        return new MethodTable<>(methods.toArray(new Method[0]), handlers.toArray(new MvpHandler[0]));
+    }
+
+    /**
+     * This method returns table of methods that are invoked without presenter lock. Methods that
+     * are annotated by {@link MvpHandler} are not included.
+     */
+    private static MethodTable<MvpReadOnly> getReadOnlyMethods(Class<?> pClass) {
+        List<Method> methods = new ArrayList<>();
+        List<MvpReadOnly> annotations = new ArrayList<>();
+        for (Method method : pClass.getMethods()) {
+            MvpReadOnly annotation = method.getAnnotation(MvpReadOnly.class);
+            if (annotation != null && method.getAnnotation(MvpHandler.class) == null) {
+                methods.add(method);
+                annotations.add(annotation);
+            }
+        }
+        return new MethodTable<>(methods.toArray(new Method[0]), annotations.toArray(new MvpReadOnly[0]));
     }
 
     private static Set<Class<?>> getAllImplementedInterfaces_(Set<Class<?>> set, Class<?> clazz) {
@@ -64,23 +109,71 @@ class ProxyHandler<S extends MvpState> implements InvocationHandler {
 
     @NonNull
     static <S extends MvpState, P extends MvpPresenter<S>> P newProxy(MvpBasePresenter<S> presenter) {
+        Metadata metadata = getMetadata(presenter.getClass());
         return (P) Proxy.newProxyInstance(presenter.getClass().getClassLoader(),
-                getAllImplementedInterfaces(presenter.getClass()), new ProxyHandler<>(presenter));
+                metadata.interfaces.clone(), new ProxyHandler<>(presenter, metadata));
+    }
+
+    /**
+     * This method returns key of handler invocation. Handle is the first {@link MvpViewHandle}
+     * argument and view ID is the first integer argument.
+     */
+    private static HandlerKey getKey(int slot, Object[] args) {
+        MvpViewHandle<?> handle = null;
+        Integer viewId = null;
+        for (Object arg : args) {
+            if (handle == null && arg instanceof MvpViewHandle) {
+                handle = (MvpViewHandle<?>) arg;
+            } else if (viewId == null && arg instanceof Integer) {
+                viewId = (Integer) arg;
+            }
+        }
+        return new HandlerKey(slot, handle, viewId == null ? 0 : viewId);
     }
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        MvpHandler handler = handlers.get(method);
-        if (handler == null) {
+        int slot = handlers.getSlot(method);
+        if (slot < 0 && readOnly.getSlot(method) >= 0) {
+            try {
+                return method.invoke(presenter, args);
+            } catch (InvocationTargetException e) {
+                presenter.getErrorHandler().accept(e.getCause());
+                throw e.getCause();
+            }
+        } else if (slot < 0) {
             // exception has to be rethrown otherwise return value unboxing error happens
-            return presenter.callSync(() -> method.invoke(presenter, args), true);
+            return presenter.callSync(method.getName(), () -> method.invoke(presenter, args), true);
         } else {
+            MvpHandler handler = handlers.getValue(slot);
             if (handler.executor()) {
-                presenter.submit(() -> method.invoke(presenter, args));
+                if (handler.debounceMs() > 0 || handler.throttleMs() > 0) {
+                    presenter.submitLimited(getKey(slot, args), handler.debounceMs(), handler.throttleMs(),
+                            () -> method.invoke(presenter, args));
+                } else if (handler.coalesce()) {
+                    presenter.submitLatest(getKey(slot, args), () -> method.invoke(presenter, args));
+                } else {
+                    presenter.submit(() -> method.invoke(presenter, args));
+                }
             } else {
-                return presenter.callSync(() -> method.invoke(presenter, args), false);
+                return presenter.callSync(method.getName(), () -> method.invoke(presenter, args), false);
             }
             return null;
         }
     }
+
+    /**
+     * This class keeps metadata of a presenter class that is shared by all instances
+     */
+    private final static class Metadata {
+        final MethodTable<MvpHandler> handlers;
+        final MethodTable<MvpReadOnly> readOnly;
+        final Class<?>[] interfaces;
+
+        Metadata(MethodTable<MvpHandler> handlers, MethodTable<MvpReadOnly> readOnly, Class<?>[] interfaces) {
+            this.handlers = handlers;
+            this.readOnly = readOnly;
+            this.interfaces = interfaces;
+        }
+    }
 }
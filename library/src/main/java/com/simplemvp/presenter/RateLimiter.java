@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.presenter;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.simplemvp.common.MvpViewHandle;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class debounces and throttles handler invocations. Every key (handler, view handle and view
+ * ID) has a slot that keeps the latest pending invocation. Slot owns a reusable mailbox alarm that
+ * is set once per burst of events, if deadline is moved forward while slot is armed then the alarm
+ * is set again when it fires instead of moving it on every event. Alarm is run in the mailbox
+ * context, so due invocation is run by the alarm directly.
+ */
+final class RateLimiter {
+    private final ConcurrentMap<HandlerKey, Slot> slots = new ConcurrentHashMap<>();
+    private final Mailbox mailbox;
+
+    /**
+     * @param mailbox mailbox that runs invocations and timers
+     */
+    RateLimiter(@NonNull Mailbox mailbox) {
+        this.mailbox = mailbox;
+    }
+
+    /**
+     * This method submits invocation to be run with respect to debounce and throttle intervals.
+     *
+     * @param key      invocation key
+     * @param debounce time in milliseconds that should pass without new invocations before the
+     *                 latest one is run
+     * @param throttle minimal time in milliseconds between two invocations
+     * @param task     invocation
+     */
+    void submit(@NonNull HandlerKey key, long debounce, long throttle, @NonNull Runnable task) {
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            Slot previous = slots.putIfAbsent(key, slot = new Slot(debounce, throttle));
+            if (previous != null) {
+                slot = previous;
+            }
+        }
+        slot.submit(task);
+    }
+
+    /**
+     * This method removes slots of a view handle that has been disconnected, so slots of recreated
+     * views do not pile up. Pending invocations are not dropped, the slot is kept by its timer
+     * until they are run.
+     *
+     * @param handle disconnected view handle
+     */
+    void remove(@NonNull MvpViewHandle<?> handle) {
+        Iterator<HandlerKey> iterator = slots.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getHandle() == handle) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * This method drops pending invocations.
+     */
+    void clear() {
+        for (Slot slot : slots.values()) {
+            slot.clear();
+        }
+        slots.clear();
+    }
+
+    private final class Slot implements Runnable {
+        private final long debounce;
+        private final long throttle;
+        private final Mailbox.Alarm alarm = mailbox.newAlarm(this);
+        private Runnable pending;
+        private long firstPending;
+        private long deadline;
+        private long lastRun = Long.MIN_VALUE / 2;
+        private boolean isArmed;
+
+        Slot(long debounce, long throttle) {
+            this.debounce = debounce;
+            this.throttle = throttle;
+        }
+
+        synchronized void submit(Runnable task) {
+            long now = SystemClock.uptimeMillis();
+            if (debounce == 0 && pending == null && now - lastRun >= throttle) {
+                // leading edge of the throttle window
+                lastRun = now;
+                mailbox.execute(task);
+                return;
+            }
+            if (pending == null) {
+                firstPending = now;
+            }
+            pending = task;
+            deadline = debounce > 0 ? now + debounce : lastRun + throttle;
+            if (debounce > 0 && throttle > 0) {
+                deadline = Math.min(deadline, firstPending + throttle);
+            }
+            if (!isArmed) {
+                isArmed = true;
+                alarm.set(deadline - now);
+            }
+        }
+
+        synchronized void clear() {
+            pending = null;
+            isArmed = false;
+            alarm.cancel();
+        }
+
+        @Override
+        public void run() {
+            Runnable task = take();
+            if (task != null) {
+                task.run();
+            }
+        }
+
+        /**
+         * This method returns pending invocation if it is due. Alarm is set again if deadline has
+         * been moved while alarm was set.
+         */
+        private synchronized Runnable take() {
+            long now = SystemClock.uptimeMillis();
+            if (pending != null && now < deadline) {
+                alarm.set(deadline - now);
+                return null;
+            }
+            isArmed = false;
+            Runnable task = pending;
+            if (task != null) {
+                lastRun = now;
+                pending = null;
+            }
+            return task;
+        }
+    }
+}
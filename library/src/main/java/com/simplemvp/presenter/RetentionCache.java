@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.presenter;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.util.Consumer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class keeps recently released or prepared values in LRU order. The cache is bounded by number of
+ * values and by their age, evicted values are passed to the evictor. Values are removed from the
+ * cache when they are taken, so a value is either reused or evicted once. Age expiration is
+ * scheduled as a single {@link TimingWheel} entry for the oldest value.
+ *
+ * @param <V> value type
+ */
+final class RetentionCache<V> {
+    private final TimingWheel wheel;
+    private final Consumer<V> evictor;
+    private final Map<Object, Retained<V>> values = new LinkedHashMap<>();
+    private final TimingWheel.Entry expiration = new TimingWheel.Entry(this::expire);
+    private int capacity;
+    private long maxAge;
+
+    /**
+     * @param wheel   wheel to schedule expiration
+     * @param evictor evictor that is called under the cache lock, so it must be short
+     */
+    RetentionCache(@NonNull TimingWheel wheel, @NonNull Consumer<V> evictor) {
+        this.wheel = wheel;
+        this.evictor = evictor;
+    }
+
+    /**
+     * This method sets limits of the cache. Values that exceed new limits are evicted.
+     *
+     * @param capacity maximum number of values, zero disables the cache
+     * @param maxAge   maximum age in milliseconds
+     */
+    synchronized void setLimits(int capacity, long maxAge) {
+        this.capacity = capacity;
+        this.maxAge = maxAge;
+        trimToSize(capacity);
+        expire();
+    }
+
+    /**
+     * This method puts value to the cache. Value that has been kept by the same key is evicted.
+     *
+     * @param key   key of the value
+     * @param value value to be kept
+     * @return false if the cache is disabled
+     */
+    synchronized boolean put(@NonNull Object key, @NonNull V value) {
+        if (capacity == 0) {
+            return false;
+        }
+        Retained<V> previous = values.remove(key);
+        if (previous != null && previous.value != value) {
+            evictor.accept(previous.value);
+        }
+        values.put(key, new Retained<>(value, SystemClock.uptimeMillis()));
+        trimToSize(capacity);
+        schedule();
+        return true;
+    }
+
+    /**
+     * This method puts value to the cache if there is no value of the key.
+     *
+     * @param key   key of the value
+     * @param value value to be kept
+     * @return true if value has been put, false if the cache is disabled or it has a value of the
+     * key
+     */
+    synchronized boolean putIfAbsent(@NonNull Object key, @NonNull V value) {
+        return !values.containsKey(key) && put(key, value);
+    }
+
+    /**
+     * This method removes value from the cache to be reused.
+     *
+     * @param key key of the value
+     * @return value or null if there is no value of the key
+     */
+    @Nullable
+    synchronized V take(@NonNull Object key) {
+        Retained<V> retained = values.remove(key);
+        return retained == null ? null : retained.value;
+    }
+
+    /**
+     * This method removes provided value from the cache without eviction
+     *
+     * @param key   key of the value
+     * @param value value to be removed
+     */
+    synchronized void remove(@NonNull Object key, @NonNull V value) {
+        Retained<V> retained = values.get(key);
+        if (retained != null && retained.value == value) {
+            values.remove(key);
+        }
+    }
+
+    /**
+     * This method evicts the oldest values to leave provided number of values.
+     *
+     * @param size number of values to be left
+     */
+    synchronized void trimToSize(int size) {
+        Iterator<Retained<V>> iterator = values.values().iterator();
+        for (int count = values.size(); count > size && iterator.hasNext(); count--) {
+            V value = iterator.next().value;
+            iterator.remove();
+            evictor.accept(value);
+        }
+    }
+
+    synchronized int size() {
+        return values.size();
+    }
+
+    /**
+     * This method evicts values that are older than maximum age and schedules the next expiration
+     */
+    private synchronized void expire() {
+        long now = SystemClock.uptimeMillis();
+        Iterator<Retained<V>> iterator = values.values().iterator();
+        while (iterator.hasNext()) {
+            Retained<V> retained = iterator.next();
+            if (retained.time + maxAge > now) {
+                break;
+            }
+            iterator.remove();
+            evictor.accept(retained.value);
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        Iterator<Retained<V>> iterator = values.values().iterator();
+        if (iterator.hasNext()) {
+            wheel.scheduleAt(expiration, iterator.next().time + maxAge);
+        } else {
+            wheel.cancel(expiration);
+        }
+    }
+
+    private static final class Retained<V> {
+        final V value;
+        /**
+         * {@link SystemClock#uptimeMillis()} time when value has been put
+         */
+        final long time;
+
+        Retained(V value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.presenter;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class delivers periodic ticks that are shared by all presenters. Ticks are aligned with
+ * wall clock, so subscribers of the same period are run together and ticks of 100 ms and 1 s
+ * periods coincide every second. Ticks are scheduled on uptime clock and wall clock defines only
+ * their phase, so ticks are not stalled when wall clock is moved backwards. Every period is a
+ * single {@link TimingWheel} entry that is scheduled only while at least one of its subscribers
+ * is active. Subscriber is active while its presenter has started views, so there is no wakeup
+ * when all screens with ticking content are in background.
+ */
+final class TickService {
+    private final TimingWheel wheel;
+    private final Map<Long, Group> groups = new TreeMap<>();
+    private final Set<Object> active = new HashSet<>();
+
+    TickService(@NonNull TimingWheel wheel) {
+        this.wheel = wheel;
+    }
+
+    /**
+     * This method subscribes task to ticks of provided period.
+     *
+     * @param owner   owner of the subscription, usually presenter
+     * @param mailbox mailbox that runs the task
+     * @param task    task to be run on every tick
+     * @param period  period in milliseconds
+     * @return subscription that is cancelled to unsubscribe
+     */
+    synchronized Subscription subscribe(@NonNull Object owner, @NonNull Mailbox mailbox,
+                                        @NonNull Runnable task, long period) {
+        Group group = groups.get(period);
+        if (group == null) {
+            groups.put(period, group = new Group(period));
+        }
+        Subscription subscription = new Subscription(group, owner, mailbox, task);
+        group.subscriptions.add(subscription);
+        if (active.contains(owner)) {
+            group.setActive(subscription, true);
+        }
+        return subscription;
+    }
+
+    /**
+     * This method resumes or pauses subscriptions of provided owner.
+     *
+     * @param owner    owner of subscriptions
+     * @param isActive true if subscriptions are to be resumed
+     */
+    synchronized void setActive(@NonNull Object owner, boolean isActive) {
+        if (isActive ? !active.add(owner) : !active.remove(owner)) {
+            return;
+        }
+        for (Group group : groups.values()) {
+            for (Subscription subscription : group.subscriptions) {
+                if (subscription.owner == owner) {
+                    group.setActive(subscription, isActive);
+                }
+            }
+        }
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        Group group = subscription.group;
+        if (group.subscriptions.remove(subscription)) {
+            group.setActive(subscription, false);
+            if (group.subscriptions.isEmpty()) {
+                groups.remove(group.period);
+            }
+        }
+    }
+
+    /**
+     * This method is called on the wheel thread when ticks of the group are due. Tasks are put to
+     * mailboxes of their presenters.
+     */
+    private void onTick(Group group) {
+        List<Subscription> due;
+        synchronized (this) {
+            if (group.count == 0) {
+                return;
+            }
+            due = new ArrayList<>(group.subscriptions.size());
+            for (Subscription subscription : group.subscriptions) {
+                if (subscription.isActive) {
+                    due.add(subscription);
+                }
+            }
+            // a tick that is run late does not cause an extra tick
+            group.next = Math.max(group.next + group.period, group.getAlignedTime());
+            wheel.scheduleAt(group.entry, group.next);
+        }
+        for (Subscription subscription : due) {
+            subscription.mailbox.execute(subscription);
+        }
+    }
+
+    private final class Group {
+        final long period;
+        final TimingWheel.Entry entry = new TimingWheel.Entry(() -> onTick(this));
+        final List<Subscription> subscriptions = new ArrayList<>();
+        /**
+         * number of active subscriptions
+         */
+        int count;
+        /**
+         * {@link SystemClock#uptimeMillis()} time of the next tick
+         */
+        long next;
+
+        Group(long period) {
+            this.period = period;
+        }
+
+        /**
+         * This method returns uptime of the nearest moment when wall clock time is a multiple of
+         * the period. It is not more than one period ahead whatever wall clock is.
+         */
+        long getAlignedTime() {
+            return SystemClock.uptimeMillis() + period - System.currentTimeMillis() % period;
+        }
+
+        void setActive(Subscription subscription, boolean isActive) {
+            if (subscription.isActive == isActive) {
+                return;
+            }
+            subscription.isActive = isActive;
+            if (isActive && count++ == 0) {
+                next = getAlignedTime();
+                wheel.scheduleAt(entry, next);
+            } else if (!isActive && --count == 0) {
+                wheel.cancel(entry);
+            }
+        }
+    }
+
+    /**
+     * This class is a subscription to ticks. Task is run in the presenter mailbox.
+     */
+    final class Subscription extends FutureTask<Void> implements ScheduledFuture<Void> {
+        private final Group group;
+        private final Object owner;
+        private final Mailbox mailbox;
+        private boolean isActive;
+
+        private Subscription(Group group, Object owner, Mailbox mailbox, Runnable task) {
+            super(task, null);
+            this.group = group;
+            this.owner = owner;
+            this.mailbox = mailbox;
+        }
+
+        @Override
+        public void run() {
+            runAndReset();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean isCancelled = super.cancel(mayInterruptIfRunning);
+            if (isCancelled) {
+                unsubscribe(this);
+            }
+            return isCancelled;
+        }
+
+        @Override
+        public long getDelay(@NonNull TimeUnit unit) {
+            long next;
+            synchronized (TickService.this) {
+                next = isActive ? group.next : Long.MAX_VALUE;
+            }
+            return next == Long.MAX_VALUE ? Long.MAX_VALUE :
+                    unit.convert(next - SystemClock.uptimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(@NonNull Delayed other) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
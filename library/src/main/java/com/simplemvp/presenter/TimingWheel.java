@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.presenter;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is a hashed timing wheel that is shared by all presenters. Time is divided into ticks
+ * and every entry is linked into the bucket of its deadline tick, so scheduling, rescheduling and
+ * cancellation take constant time and do not allocate. Entries which deadline is more than one
+ * round ahead stay in their bucket until the wheel comes to their round.
+ * <p>
+ * Wheel thread sleeps until the nearest deadline and it does not wake up at all if there is no
+ * entry. Expired entries are run on the wheel thread, so they must be short. Presenter timers just
+ * put tasks to mailboxes.
+ */
+final class TimingWheel implements Runnable {
+    private final static String tag = TimingWheel.class.getSimpleName();
+    private final static int SLOTS = 512;
+    private final static int MASK = SLOTS - 1;
+    private final long tick;
+    private final Entry[] buckets = new Entry[SLOTS];
+    private final Thread thread;
+    /**
+     * the last processed tick, entries can be scheduled only to later ticks
+     */
+    private long current;
+    /**
+     * tick at which wheel thread is going to wake up
+     */
+    private long wakeup = Long.MAX_VALUE;
+    private int size;
+
+    /**
+     * @param tick tick duration in milliseconds
+     */
+    TimingWheel(long tick) {
+        this.tick = tick;
+        this.current = SystemClock.uptimeMillis() / tick;
+        this.thread = new Thread(this, tag);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * This method schedules entry to be run after provided delay. Entry that is already scheduled
+     * is moved to the new deadline.
+     *
+     * @param entry entry to be scheduled
+     * @param delay delay in milliseconds
+     */
+    void schedule(@NonNull Entry entry, long delay) {
+        scheduleAt(entry, SystemClock.uptimeMillis() + Math.max(0, delay));
+    }
+
+    /**
+     * This method schedules entry to be run at provided time.
+     *
+     * @param entry entry to be scheduled
+     * @param time  {@link SystemClock#uptimeMillis()} time
+     */
+    synchronized void scheduleAt(@NonNull Entry entry, long time) {
+        if (entry.isScheduled) {
+            unlink(entry);
+        }
+        // deadline is rounded up, so entry is never run earlier than requested
+        long deadline = Math.max(current + 1, (time + tick - 1) / tick);
+        int index = (int) (deadline & MASK);
+        entry.deadline = deadline;
+        entry.isScheduled = true;
+        entry.prev = null;
+        entry.next = buckets[index];
+        if (entry.next != null) {
+            entry.next.prev = entry;
+        }
+        buckets[index] = entry;
+        size++;
+        if (deadline < wakeup) {
+            notify();
+        }
+    }
+
+    /**
+     * This method removes entry from the wheel.
+     *
+     * @param entry entry to be cancelled
+     * @return true if entry has been scheduled
+     */
+    synchronized boolean cancel(@NonNull Entry entry) {
+        if (entry.isScheduled) {
+            unlink(entry);
+            return true;
+        }
+        return false;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            buckets[(int) (entry.deadline & MASK)] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+        entry.isScheduled = false;
+        size--;
+    }
+
+    @Override
+    public void run() {
+        List<Entry> expired = new ArrayList<>();
+        while (true) {
+            try {
+                synchronized (this) {
+                    advance(SystemClock.uptimeMillis() / tick, expired);
+                    if (expired.isEmpty()) {
+                        wakeup = size == 0 ? Long.MAX_VALUE : getNextDeadline();
+                        if (wakeup == Long.MAX_VALUE) {
+                            wait();
+                        } else {
+                            long delay = wakeup * tick - SystemClock.uptimeMillis();
+                            if (delay > 0) {
+                                wait(delay);
+                            }
+                        }
+                        wakeup = Long.MAX_VALUE;
+                        continue;
+                    }
+                }
+                for (Entry entry : expired) {
+                    try {
+                        entry.task.run();
+                    } catch (RuntimeException e) {
+                        Log.e(tag, "error: ", e);
+                    }
+                }
+                expired.clear();
+            } catch (InterruptedException e) {
+                Log.w(tag, "wheel thread is interrupted");
+                return;
+            }
+        }
+    }
+
+    /**
+     * This method moves the wheel to provided tick and collects expired entries. If the wheel has
+     * been idle for more than one round then every bucket is visited once.
+     */
+    private void advance(long now, List<Entry> expired) {
+        long from = Math.max(current + 1, now - MASK);
+        for (long t = from; t <= now; t++) {
+            Entry entry = buckets[(int) (t & MASK)];
+            while (entry != null) {
+                Entry next = entry.next;
+                if (entry.deadline <= now) {
+                    unlink(entry);
+                    expired.add(entry);
+                }
+                entry = next;
+            }
+        }
+        current = Math.max(current, now);
+    }
+
+    /**
+     * This method returns the nearest deadline within the next round or the end of the round.
+     */
+    private long getNextDeadline() {
+        for (long t = current + 1; t <= current + SLOTS; t++) {
+            for (Entry entry = buckets[(int) (t & MASK)]; entry != null; entry = entry.next) {
+                if (entry.deadline == t) {
+                    return t;
+                }
+            }
+        }
+        return current + SLOTS;
+    }
+
+    /**
+     * This class is a node of the wheel. It can be scheduled again after it has been run or
+     * cancelled.
+     */
+    static final class Entry {
+        private final Runnable task;
+        private Entry prev;
+        private Entry next;
+        private long deadline;
+        private boolean isScheduled;
+
+        /**
+         * @param task task to be run on the wheel thread when entry expires
+         */
+        Entry(@NonNull Runnable task) {
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.view;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.simplemvp.common.MvpOverflowPolicy;
+
+import java.util.concurrent.Callable;
+
+/**
+ * This class is a bounded ring buffer of events that are queued while view is not ready. It keeps
+ * counters of queued, handled, dropped and coalesced events. Class is not thread safe since it is
+ * used on the main thread only.
+ */
+final class EventQueue {
+    private final Callable<?>[] events;
+    private final MvpOverflowPolicy policy;
+    private int head;
+    private int size;
+    private int maxSize;
+    private long enqueued;
+    private long dequeued;
+    private long dropped;
+    private long coalesced;
+
+    EventQueue(int capacity, @NonNull MvpOverflowPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.events = new Callable<?>[capacity];
+        this.policy = policy;
+    }
+
+    /**
+     * This method adds event to the queue. Overflow policy is applied if queue is full.
+     *
+     * @param event event to be queued
+     * @return false if an event has been dropped
+     */
+    boolean add(@NonNull Callable<?> event) {
+        boolean isDropped = false;
+        if (size == events.length) {
+            switch (policy) {
+                case DROP_OLDEST:
+                    poll();
+                    dropped++;
+                    isDropped = true;
+                    break;
+                case DROP_NEWEST:
+                    dropped++;
+                    return false;
+                default:
+                    throw new IllegalStateException("event queue overflow: " + this);
+            }
+        }
+        events[(head + size) % events.length] = event;
+        size++;
+        enqueued++;
+        maxSize = Math.max(maxSize, size);
+        return !isDropped;
+    }
+
+    @Nullable
+    Callable<?> poll() {
+        if (size == 0) {
+            return null;
+        }
+        Callable<?> event = events[head];
+        events[head] = null;
+        head = (head + 1) % events.length;
+        size--;
+        dequeued++;
+        return event;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * This method is called when pending state is replaced by the new one.
+     */
+    void onStateCoalesced() {
+        coalesced++;
+    }
+
+    /**
+     * @return number of events that have been queued so far
+     */
+    long getEnqueuedCount() {
+        return enqueued;
+    }
+
+    /**
+     * @return number of events that have been removed from the queue so far
+     */
+    long getDequeuedCount() {
+        return dequeued;
+    }
+
+    long getDroppedCount() {
+        return dropped;
+    }
+
+    long getCoalescedCount() {
+        return coalesced;
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public String toString() {
+        return "EventQueue {" +
+                "capacity=" + events.length +
+                ", policy=" + policy +
+                ", size=" + size +
+                ", maxSize=" + maxSize +
+                ", enqueued=" + enqueued +
+                ", dropped=" + dropped +
+                ", coalesced=" + coalesced +
+                '}';
+    }
+}
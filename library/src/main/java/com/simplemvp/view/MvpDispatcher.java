@@ -10,6 +10,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.text.TextWatcher;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.DragEvent;
 import android.view.KeyEvent;
 import android.view.MenuItem;
@@ -34,6 +35,8 @@ import androidx.viewpager.widget.ViewPager;
 
 import com.google.android.material.snackbar.Snackbar;
 import com.google.android.material.tabs.TabLayout;
+import com.simplemvp.common.MvpDelta;
+import com.simplemvp.common.MvpDeliveryMode;
 import com.simplemvp.common.MvpListener;
 import com.simplemvp.common.MvpPresenter;
 import com.simplemvp.common.MvpState;
@@ -42,10 +45,8 @@ import com.simplemvp.common.MvpViewHandle;
 
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -69,12 +70,19 @@ class MvpDispatcher<S extends MvpState> extends ContextWrapper
     private final int id;
     private final MvpView<S, ?> view;
     private final MvpPresenter<S> presenter;
-    private final Queue<Callable<?>> events = new LinkedList<>();
+    private final EventQueue events;
     private final List<DisposableListener> listeners = new ArrayList<>();
+    private final Choreographer.FrameCallback frameCallback = this::onFrame;
     private boolean isFirstStateChange = true;
     private boolean isEnabled;
     private boolean isResumed;
     private boolean isDestroyed;
+    private boolean isFullStateRequested;
+    private boolean isFrameScheduled;
+    private boolean isStatePending;
+    private long statePosition;
+    private long pendingChanges;
+    private Choreographer choreographer;
     private MvpViewHandle<S> proxy;
     private S state;
     private InputMethodManager imm;
@@ -85,6 +93,7 @@ class MvpDispatcher<S extends MvpState> extends ContextWrapper
         this.id = getId(savedState);
         this.view = view;
         this.presenter = view.getPresenter();
+        this.events = new EventQueue(view.getEventQueueCapacity(), view.getEventQueuePolicy());
     }
 
     private static int getId(Bundle bundle) {
@@ -112,6 +121,7 @@ class MvpDispatcher<S extends MvpState> extends ContextWrapper
     @OnLifecycleEvent(Lifecycle.Event.ON_PAUSE)
     public void onPaused() {
         isResumed = false;
+        cancelFrame();
     }
 
     @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
@@ -126,6 +136,9 @@ class MvpDispatcher<S extends MvpState> extends ContextWrapper
     @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
     public void onDestroy() {
         isDestroyed = true;
+        if (events.getDroppedCount() > 0 || events.getCoalescedCount() > 0) {
+            Log.d(tag, "pending events: " + events);
+        }
     }
 
     /**
@@ -151,7 +164,7 @@ class MvpDispatcher<S extends MvpState> extends ContextWrapper
      */
     private void onEnabledOrResumed() {
         if (isParentViewReady()) {
-            if (events.isEmpty()) {
+            if (events.isEmpty() && !isStatePending) {
                 postLastState();
             } else {
                 drainEvents();
@@ -174,27 +187,44 @@ class MvpDispatcher<S extends MvpState> extends ContextWrapper
         return isDestroyed;
     }
 
+    @NonNull
+    MvpDeliveryMode getDeliveryMode() {
+        return view.getDeliveryMode();
+    }
+
     /**
      * Typically this method is called by parent {@link MvpView} implementation internally
      * to update itself. It is suitable in cases when menu has been invalidated and so on.
      */
     void postLastState() {
         if (state != null) {
-            post(state);
+            render(state, true);
         }
     }
 
     /**
      * This method drains event queue when parent view becomes ready to handle state changes.
+     * Pending state is rendered in between events that have been queued before and after it.
      */
     private void drainEvents() {
         try {
             while (!events.isEmpty()) {
-                events.remove().call();
+                if (isStatePending && statePosition <= events.getDequeuedCount()) {
+                    renderPendingState();
+                }
+                events.poll().call();
             }
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        if (isStatePending) {
+            renderPendingState();
+        }
+    }
+
+    private void renderPendingState() {
+        isStatePending = false;
+        render(state, false);
     }
 
     /**
@@ -203,7 +233,9 @@ class MvpDispatcher<S extends MvpState> extends ContextWrapper
      * @param event {@link Callable} instance
      */
     void submitEvent(Callable<?> event) {
-        events.add(event);
+        if (!events.add(event)) {
+            Log.w(tag, "pending event is dropped: " + events);
+        }
     }
 
     private boolean isFirstStateChange() {
@@ -220,9 +252,19 @@ class MvpDispatcher<S extends MvpState> extends ContextWrapper
         return proxy;
     }
 
+    /**
+     * This method instantiates handle that is generated by annotation processor. Reflective proxy
+     * is used if there is no generated class.
+     *
+     * @return {@link MvpViewHandle} instance
+     */
     private MvpViewHandle<S> newProxy() {
-        return (MvpViewHandle<S>) Proxy.newProxyInstance(getClass().getClassLoader(),
-                new Class<?>[]{MvpViewHandle.class}, new ProxyHandler(this, presenter));
+        MvpViewHandle<S> handle = MvpViewHandleProxy.newProxy(this, presenter);
+        if (handle == null) {
+            handle = (MvpViewHandle<S>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{MvpViewHandle.class}, new ProxyHandler(this, presenter));
+        }
+        return handle;
     }
 
     private InputMethodManager getImm() {
@@ -351,14 +393,95 @@ class MvpDispatcher<S extends MvpState> extends ContextWrapper
         return view.getLayoutId();
     }
 
-    @Proxify(alive = false)
+    @Proxify(alive = false, queued = false)
     @Override
     public void post(@NonNull S state) {
-        if (isFirstStateChange()) {
-            view.onFirstStateChange(state);
+        isFullStateRequested = false;
+        render(state, false);
+    }
+
+    @Proxify(alive = false, queued = false)
+    @Override
+    public void postDelta(@NonNull MvpDelta<S> delta) {
+        if (isFullStateRequested) {
+            return;
         }
-        view.onStateChanged(state);
+        if (state == null || !delta.isApplicable(state)) {
+            Log.d(tag, "full state is requested since " + delta + " can not be applied to " + state);
+            // view is reconnected to get full state
+            isFullStateRequested = true;
+            presenter.connect(view);
+            return;
+        }
+        // rendered states are never modified, so they may be kept by view
+        render(delta.applyToCopy(state), false);
+    }
+
+    /**
+     * This method passes state to parent {@link MvpView}. State is rendered entirely if it is the
+     * first state change or the state has been already rendered, so all fields are reported as
+     * changed by {@link MvpState#isChanged(int)}. Rendering is postponed till the next frame if
+     * parent view is frame aligned or till parent view becomes ready.
+     *
+     * @param state  state to be rendered
+     * @param isFull true to render all fields
+     */
+    private void render(@NonNull S state, boolean isFull) {
         this.state = state;
+        pendingChanges |= isFull ? MvpState.ALL_FIELDS : state.getChanges();
+        if (!isParentViewReady()) {
+            // only the latest state is kept until view becomes ready
+            if (isStatePending) {
+                events.onStateCoalesced();
+            }
+            isStatePending = true;
+            statePosition = events.getEnqueuedCount();
+        } else if (!view.isFrameAligned()) {
+            renderPending();
+        } else if (!isFrameScheduled) {
+            isFrameScheduled = true;
+            getChoreographer().postFrameCallback(frameCallback);
+        }
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        isFrameScheduled = false;
+        if (state != null && !isDestroyed) {
+            renderPending();
+        }
+    }
+
+    /**
+     * This method renders the last state. Change mask of the rendered state includes changes of
+     * all states that have not been rendered.
+     */
+    private void renderPending() {
+        boolean isFirst = isFirstStateChange();
+        long changes = isFirst ? MvpState.ALL_FIELDS : pendingChanges;
+        S snapshot = changes == state.getChanges() ? state : (S) state.cloneWithChanges(changes);
+        pendingChanges = 0;
+        if (isFirst) {
+            view.onFirstStateChange(snapshot);
+        }
+        view.onStateChanged(snapshot);
+    }
+
+    /**
+     * This method drops scheduled rendering. Last state is rendered again when parent view is
+     * resumed.
+     */
+    private void cancelFrame() {
+        if (isFrameScheduled) {
+            isFrameScheduled = false;
+            getChoreographer().removeFrameCallback(frameCallback);
+        }
+    }
+
+    private Choreographer getChoreographer() {
+        if (choreographer == null) {
+            choreographer = Choreographer.getInstance();
+        }
+        return choreographer;
     }
 
     @Proxify
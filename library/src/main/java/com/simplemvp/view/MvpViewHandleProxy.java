@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.view;
+
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.simplemvp.common.MainThreadBatch;
+import com.simplemvp.common.MvpDeliveryMode;
+import com.simplemvp.common.MvpPresenter;
+import com.simplemvp.common.MvpState;
+import com.simplemvp.common.MvpViewHandle;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This is a base class of {@link MvpViewHandle} implementation that is generated by SimpleMVP
+ * annotation processor from {@link Proxify} annotations of {@link MvpDispatcher}. Generated class
+ * has the same behaviour as {@link ProxyHandler} but it invokes {@link MvpDispatcher} methods
+ * directly. Calls from other threads are delivered using {@link MainThreadBatch}.
+ *
+ * @param <S> state type
+ */
+abstract class MvpViewHandleProxy<S extends MvpState> implements MainThreadBatch.Target<MvpViewHandleProxy.Command> {
+    private final static String SUFFIX = "_MvpHandle";
+    private final static String tag = MvpViewHandleProxy.class.getSimpleName();
+    private final static Thread mainThread = Looper.getMainLooper().getThread();
+    private final static Map<Class<?>, Constructor<?>> constructors = new ConcurrentHashMap<>();
+    private final static Set<Class<?>> missing = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final WeakReference<MvpDispatcher<S>> dispatcher;
+    private final MvpPresenter<S> presenter;
+    private final MvpDeliveryMode mode;
+    private final int viewId;
+
+    MvpViewHandleProxy(MvpDispatcher<S> dispatcher, MvpPresenter<S> presenter) {
+        this.dispatcher = new WeakReference<>(dispatcher);
+        this.presenter = presenter;
+        this.mode = dispatcher.getDeliveryMode();
+        this.viewId = dispatcher.getMvpId();
+    }
+
+    /**
+     * This method instantiates generated handle of the dispatcher.
+     *
+     * @param dispatcher {@link MvpDispatcher} instance
+     * @param presenter  presenter the dispatcher is connected to
+     * @return generated handle or null if there is no generated class
+     */
+    @Nullable
+    static <S extends MvpState> MvpViewHandle<S> newProxy(@NonNull MvpDispatcher<S> dispatcher,
+                                                          @NonNull MvpPresenter<S> presenter) {
+        Class<?> dClass = dispatcher.getClass();
+        if (missing.contains(dClass)) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = constructors.get(dClass);
+            if (constructor == null) {
+                constructor = Class.forName(dClass.getName() + SUFFIX, true, dClass.getClassLoader())
+                        .getDeclaredConstructor(dClass, MvpPresenter.class);
+                constructors.put(dClass, constructor);
+            }
+            return (MvpViewHandle<S>) constructor.newInstance(dispatcher, presenter);
+        } catch (ClassNotFoundException e) {
+            Log.d(tag, "generated handle is not found for " + dClass.getName());
+            missing.add(dClass);
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static boolean isMainThread() {
+        return mainThread == Thread.currentThread();
+    }
+
+    /**
+     * This method returns dispatcher if parent view is alive. Presenter is disconnected from the view
+     * otherwise.
+     *
+     * @return {@link MvpDispatcher} instance or null if view has been destroyed
+     */
+    @Nullable
+    final MvpDispatcher<S> getDispatcher() {
+        MvpDispatcher<S> dispatcher = this.dispatcher.get();
+        if (dispatcher == null || dispatcher.isParentViewDestroyed()) {
+            presenter.disconnectLazy(viewId);
+            return null;
+        }
+        return dispatcher;
+    }
+
+    final RuntimeException newDestroyedException() {
+        return new RuntimeException("view has been already destroyed");
+    }
+
+    /**
+     * This method posts call that does not depend on view readiness to the main thread.
+     *
+     * @param runnable call to be run
+     */
+    final void postToMainThread(Runnable runnable) {
+        MainThreadBatch.post(this, new Command(() -> {
+            runnable.run();
+            return null;
+        }, false));
+    }
+
+    /**
+     * This method posts call to the main thread. Call is queued by the dispatcher if view is not
+     * ready to handle it.
+     *
+     * @param call call to be run
+     */
+    final void postQueued(Callable<?> call) {
+        MainThreadBatch.post(this, new Command(call, true));
+    }
+
+    /**
+     * This method executes commands of a batch. View is checked once for all commands.
+     *
+     * @param commands commands in posting order
+     */
+    @Override
+    public final void execute(@NonNull List<Command> commands) {
+        MvpDispatcher<S> dispatcher = getDispatcher();
+        if (dispatcher == null) {
+            return;
+        }
+        boolean isReady = dispatcher.isParentViewReady();
+        for (Command command : commands) {
+            if (!command.isQueued || isReady) {
+                try {
+                    command.call.call();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            } else {
+                dispatcher.submitEvent(command.call);
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public final MvpDeliveryMode getDeliveryMode() {
+        return mode;
+    }
+
+    static final class Command {
+        final Callable<?> call;
+        final boolean isQueued;
+
+        Command(Callable<?> call, boolean isQueued) {
+            this.call = call;
+            this.isQueued = isQueued;
+        }
+    }
+}
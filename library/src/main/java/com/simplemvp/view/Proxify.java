@@ -20,4 +20,10 @@ import java.lang.annotation.Target;
      * Check that view is alive and throw error otherwise
      */
     boolean alive() default true;
+
+    /**
+     * Queue invocation while view is not ready, otherwise method is invoked on main thread anyway
+     * and it has to check view readiness itself
+     */
+    boolean queued() default true;
 }
@@ -4,35 +4,43 @@
 
 package com.simplemvp.view;
 
-import android.os.Handler;
 import android.os.Looper;
 
+import androidx.annotation.NonNull;
+
+import com.simplemvp.common.MainThreadBatch;
+import com.simplemvp.common.MethodTable;
+import com.simplemvp.common.MvpDeliveryMode;
 import com.simplemvp.common.MvpPresenter;
 import com.simplemvp.common.MvpState;
-import com.simplemvp.common.MvpViewHandle;
 
 import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
-class ProxyHandler<S extends MvpState> implements InvocationHandler {
+class ProxyHandler<S extends MvpState> implements InvocationHandler, MainThreadBatch.Target<ProxyHandler.Call> {
     private final static String tag = ProxyHandler.class.getSimpleName();
     private final static Thread mainThread = Looper.getMainLooper().getThread();
+    /**
+     * annotated methods of dispatcher classes, they are scanned once per class
+     */
+    private final static Map<Class<?>, MethodTable<Proxify>> cache = new ConcurrentHashMap<>();
     private final WeakReference<MvpDispatcher<S>> dispatcher;
-    private final Map<Method, Proxify> annotations;
+    private final MethodTable<Proxify> annotations;
     private final MvpPresenter<S> presenter;
-    private final Handler handler;
+    private final MvpDeliveryMode mode;
     private final int viewId;
 
     ProxyHandler(MvpDispatcher<S> dispatcher, MvpPresenter<S> presenter) {
         this.dispatcher = new WeakReference<>(dispatcher);
         this.presenter = presenter;
-        annotations = Collections.synchronizedMap(getAnnotatedMethods(dispatcher));
-        handler = new Handler(Looper.getMainLooper());
+        annotations = getAnnotatedMethods(dispatcher.getClass());
+        mode = dispatcher.getDeliveryMode();
         viewId = dispatcher.getMvpId();
     }
 
@@ -40,12 +48,27 @@ class ProxyHandler<S extends MvpState> implements InvocationHandler {
         return mainThread.equals(thread);
     }
 
-    private Map<Method, Proxify> getAnnotatedMethods(MvpViewHandle<S> view) {
-        Map<Method, Proxify> result = new TreeMap<>((o1, o2) -> o1.getName().compareTo(o2.getName()));
-        for (Method method : view.getClass().getMethods()) {
-            Proxify annotation = method.getAnnotation(Proxify.class);
-            if (annotation != null) {
-                result.put(method, annotation);
+    /**
+     * This method returns table of annotated methods of provided class. Table is built once per
+     * class and shared by all handlers. Methods are matched by signature, so every overloaded
+     * method has its own {@link Proxify} annotation.
+     */
+    private static MethodTable<Proxify> getAnnotatedMethods(Class<?> dClass) {
+        MethodTable<Proxify> result = cache.get(dClass);
+        if (result == null) {
+            List<Method> methods = new ArrayList<>();
+            List<Proxify> annotations = new ArrayList<>();
+            for (Method method : dClass.getMethods()) {
+                Proxify annotation = method.getAnnotation(Proxify.class);
+                if (annotation != null) {
+                    methods.add(method);
+                    annotations.add(annotation);
+                }
+            }
+            result = new MethodTable<>(methods.toArray(new Method[0]), annotations.toArray(new Proxify[0]));
+            MethodTable<Proxify> previous = cache.putIfAbsent(dClass, result);
+            if (previous != null) {
+                result = previous;
             }
         }
         return result;
@@ -64,15 +87,9 @@ class ProxyHandler<S extends MvpState> implements InvocationHandler {
         } else {
             if (annotation.looper()) {
                 if (isMainThread(Thread.currentThread())) {
-                    return handle(dispatcher, method, args);
+                    return handle(dispatcher, annotation, method, args);
                 } else {
-                    handler.post(() -> {
-                        try {
-                            handle(dispatcher, method, args);
-                        } catch (Exception e) {
-                            throw new RuntimeException(e);
-                        }
-                    });
+                    MainThreadBatch.post(this, new Call(annotation, method, args));
                     return null;
                 }
             } else {
@@ -81,12 +98,57 @@ class ProxyHandler<S extends MvpState> implements InvocationHandler {
         }
     }
 
-    private Object handle(MvpDispatcher<S> dispatcher, Method method, Object[] args) throws IllegalAccessException, InvocationTargetException {
-        if (dispatcher.isParentViewReady()) {
+    private Object handle(MvpDispatcher<S> dispatcher, Proxify annotation, Method method, Object[] args) throws IllegalAccessException, InvocationTargetException {
+        if (!annotation.queued() || dispatcher.isParentViewReady()) {
             return method.invoke(dispatcher, args);
         } else {
             dispatcher.submitEvent(() -> method.invoke(dispatcher, args));
             return null;
         }
     }
+
+    /**
+     * This method executes calls posted from other threads. View is checked once for all calls of
+     * the batch.
+     *
+     * @param calls calls in posting order
+     */
+    @Override
+    public void execute(@NonNull List<Call> calls) {
+        MvpDispatcher<S> dispatcher = this.dispatcher.get();
+        if (dispatcher == null || dispatcher.isParentViewDestroyed()) {
+            presenter.disconnectLazy(viewId);
+            return;
+        }
+        boolean isReady = dispatcher.isParentViewReady();
+        for (Call call : calls) {
+            try {
+                if (!call.annotation.queued() || isReady) {
+                    call.method.invoke(dispatcher, call.args);
+                } else {
+                    dispatcher.submitEvent(() -> call.method.invoke(dispatcher, call.args));
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public MvpDeliveryMode getDeliveryMode() {
+        return mode;
+    }
+
+    static final class Call {
+        final Proxify annotation;
+        final Method method;
+        final Object[] args;
+
+        Call(Proxify annotation, Method method, Object[] args) {
+            this.annotation = annotation;
+            this.method = method;
+            this.args = args;
+        }
+    }
 }
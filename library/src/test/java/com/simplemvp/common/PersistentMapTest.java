@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.common;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentMapTest {
+    private static PersistentMap<Integer, String> newMap(int size) {
+        PersistentMap<Integer, String> map = new PersistentMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(i, String.valueOf(i));
+        }
+        return map;
+    }
+
+    @Test
+    public void put_get_remove() {
+        PersistentMap<Integer, String> map = newMap(10_000);
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(String.valueOf(i), map.get(i));
+        }
+        assertEquals("5", map.put(5, "five"));
+        assertEquals("five", map.remove(5));
+        assertNull(map.remove(5));
+        assertFalse(map.containsKey(5));
+        map.put(-1, null);
+        assertTrue(map.containsKey(-1));
+        assertNull(map.get(-1));
+        assertEquals(10_000, map.size());
+    }
+
+    @Test
+    public void snapshot_isIsolated() {
+        PersistentMap<Integer, String> map = newMap(5000);
+        PersistentMap<Integer, String> snapshot = map.snapshot();
+        Map<Integer, String> expected = new HashMap<>(map);
+        for (int i = 0; i < 5000; i += 2) {
+            map.remove(i);
+        }
+        map.put(1, "one");
+        map.put(5000, "5000");
+        assertEquals(expected, snapshot);
+        snapshot.put(1, "first");
+        snapshot.clear();
+        assertEquals(2501, map.size());
+        assertEquals("one", map.get(1));
+        assertEquals("3", map.get(3));
+    }
+
+    @Test
+    public void collisions_areKept() {
+        PersistentMap<Key, Integer> map = new PersistentMap<>();
+        Map<Key, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            // three groups of keys with equal hash codes
+            Key key = new Key(i, i % 3 * 0x40000000);
+            map.put(key, i);
+            expected.put(key, i);
+        }
+        PersistentMap<Key, Integer> snapshot = map.snapshot();
+        assertEquals(expected, map);
+        for (int i = 0; i < 300; i += 2) {
+            assertEquals(i, (int) map.remove(new Key(i, i % 3 * 0x40000000)));
+        }
+        assertEquals(expected, snapshot);
+        for (int i = 0; i < 300; i++) {
+            assertEquals(i % 2 == 0 ? null : i, map.get(new Key(i, i % 3 * 0x40000000)));
+        }
+        for (int i = 1; i < 300; i += 2) {
+            map.remove(new Key(i, i % 3 * 0x40000000));
+        }
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void iterator_remove() {
+        PersistentMap<Integer, String> map = newMap(3000);
+        for (Iterator<Map.Entry<Integer, String>> iterator = map.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<Integer, String> entry = iterator.next();
+            if (entry.getKey() % 3 == 0) {
+                iterator.remove();
+            } else {
+                entry.setValue("v" + entry.getKey());
+            }
+        }
+        assertEquals(2000, map.size());
+        for (int i = 0; i < 3000; i++) {
+            assertEquals(i % 3 == 0 ? null : "v" + i, map.get(i));
+        }
+    }
+
+    @Test
+    public void randomOperations_matchHashMap() {
+        Random random = new Random(1);
+        PersistentMap<Integer, Integer> map = new PersistentMap<>();
+        Map<Integer, Integer> actual = new HashMap<>();
+        PersistentMap<Integer, Integer> snapshot = map.snapshot();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(2000);
+            int operation = random.nextInt(100);
+            if (operation < 55) {
+                assertEquals(actual.put(key, i), map.put(key, i));
+            } else if (operation < 90) {
+                assertEquals(actual.remove(key), map.remove(key));
+            } else if (operation < 99) {
+                assertEquals(actual.get(key), map.get(key));
+            } else {
+                assertEquals(expected, snapshot);
+                snapshot = map.snapshot();
+                expected = new HashMap<>(actual);
+            }
+            assertEquals(actual.size(), map.size());
+        }
+        assertEquals(actual, map);
+        assertEquals(expected, snapshot);
+    }
+
+    private final static class Key {
+        private final int value;
+        private final int hash;
+
+        Key(int value, int hash) {
+            this.value = value;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.common;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class PersistentVectorTest {
+    /**
+     * number of elements that fills three levels of the trie and the tail
+     */
+    private final static int LARGE = 32 * 32 * 32 + 32 + 7;
+
+    private static PersistentVector<Integer> newVector(int size) {
+        PersistentVector<Integer> vector = new PersistentVector<>();
+        for (int i = 0; i < size; i++) {
+            vector.add(i);
+        }
+        return vector;
+    }
+
+    private static List<Integer> newList(int size) {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    @Test
+    public void add_get_set() {
+        PersistentVector<Integer> vector = newVector(LARGE);
+        assertEquals(newList(LARGE), vector);
+        for (int i = 0; i < LARGE; i += 7) {
+            assertEquals(i, (int) vector.set(i, -i));
+        }
+        for (int i = 0; i < LARGE; i++) {
+            assertEquals(i % 7 == 0 ? -i : i, (int) vector.get(i));
+        }
+    }
+
+    @Test
+    public void snapshot_isIsolated() {
+        PersistentVector<Integer> vector = newVector(LARGE);
+        PersistentVector<Integer> snapshot = vector.snapshot();
+        vector.set(0, -1);
+        vector.set(LARGE / 2, -1);
+        vector.add(LARGE);
+        vector.removeLast();
+        vector.removeLast();
+        vector.subList(0, 100).clear();
+        assertEquals(newList(LARGE), snapshot);
+        snapshot.set(LARGE - 1, -1);
+        snapshot.add(-2);
+        assertEquals(-1, (int) vector.get(LARGE / 2 - 100));
+        assertEquals(LARGE - 101, vector.size());
+        assertEquals(LARGE - 2, (int) vector.get(vector.size() - 1));
+        // the second snapshot shares nodes that have been copied after the first one
+        PersistentVector<Integer> second = vector.snapshot();
+        vector.clear();
+        assertEquals(LARGE - 101, second.size());
+        assertEquals(100, (int) second.get(0));
+    }
+
+    @Test
+    public void removeLast_acrossLevels() {
+        PersistentVector<Integer> vector = newVector(LARGE);
+        PersistentVector<Integer> snapshot = vector.snapshot();
+        for (int size = LARGE; size > 0; size--) {
+            assertEquals(size - 1, (int) vector.removeLast());
+            assertEquals(size - 1, vector.size());
+            if (size % 1000 == 0 || size < 70) {
+                assertEquals(newList(size - 1), vector);
+            }
+        }
+        assertEquals(newList(LARGE), snapshot);
+        // the trie grows again after it has been shrunk
+        for (int i = 0; i < LARGE; i++) {
+            vector.add(i);
+        }
+        assertEquals(newList(LARGE), vector);
+    }
+
+    @Test
+    public void removeFront_keepsOrder() {
+        PersistentVector<Integer> vector = new PersistentVector<>();
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            vector.add(i);
+            list.add(i);
+            if (i % 97 == 0 && list.size() > 10) {
+                // keeps the last elements like a bounded log
+                vector.subList(0, vector.size() - 10).clear();
+                list.subList(0, list.size() - 10).clear();
+                assertEquals(list, vector);
+            } else if (i % 31 == 0) {
+                assertEquals(list.remove(0), vector.remove(0));
+            }
+        }
+        assertEquals(list, vector);
+        vector.subList(0, vector.size()).clear();
+        assertEquals(0, vector.size());
+    }
+
+    @Test
+    public void iterator_remove() {
+        PersistentVector<Integer> vector = newVector(1000);
+        List<Integer> list = newList(1000);
+        for (Iterator<Integer> iterator = vector.iterator(); iterator.hasNext(); ) {
+            if (iterator.next() % 3 != 1) {
+                iterator.remove();
+            }
+        }
+        list.removeIf(value -> value % 3 != 1);
+        assertEquals(list, vector);
+    }
+
+    @Test
+    public void randomOperations_matchArrayList() {
+        Random random = new Random(1);
+        PersistentVector<Integer> vector = new PersistentVector<>();
+        List<Integer> list = new ArrayList<>();
+        PersistentVector<Integer> snapshot = vector.snapshot();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            int operation = random.nextInt(100);
+            if (operation < 60 || list.isEmpty()) {
+                vector.add(i);
+                list.add(i);
+            } else if (operation < 75) {
+                int index = random.nextInt(list.size());
+                assertEquals(list.set(index, -i), vector.set(index, -i));
+            } else if (operation < 90) {
+                assertEquals(list.remove(list.size() - 1), vector.removeLast());
+            } else if (operation < 93) {
+                int count = random.nextInt(list.size() + 1);
+                vector.subList(0, count).clear();
+                list.subList(0, count).clear();
+            } else if (operation < 94) {
+                int index = random.nextInt(list.size());
+                assertEquals(list.remove(index), vector.remove(index));
+            } else if (operation < 95) {
+                int index = random.nextInt(list.size() + 1);
+                vector.add(index, i);
+                list.add(index, i);
+            } else {
+                assertEquals(expected, snapshot);
+                snapshot = vector.snapshot();
+                expected = new ArrayList<>(list);
+            }
+        }
+        assertEquals(list, vector);
+        assertEquals(expected, snapshot);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.presenter;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LongConcurrentMapTest {
+    @Test
+    public void map_isConsistent() {
+        LongConcurrentMap<Object> map = new LongConcurrentMap<>();
+        Object[] values = new Object[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new Object();
+            assertNull(map.put(i, values[i]));
+        }
+        for (int i = 0; i < values.length; i += 2) {
+            assertSame(values[i], map.remove(i));
+        }
+        assertEquals(values.length / 2, map.size());
+        for (int i = 0; i < values.length; i++) {
+            assertSame(i % 2 == 0 ? null : values[i], map.get(i));
+        }
+        assertSame(values[1], map.putIfAbsent(1, new Object()));
+        assertFalse(map.remove(1, new Object()));
+        assertTrue(map.remove(1, values[1]));
+    }
+
+    @Test
+    public void rebuild_keepsEntries() {
+        LongConcurrentMap<Long> map = new LongConcurrentMap<>();
+        // keys that are far from each other and negative keys grow the table several times
+        for (long i = 0; i < 10_000; i++) {
+            assertNull(map.put(i * 0x100000001L - 5000, i));
+            assertEquals(i + 1, map.size());
+        }
+        for (long i = 0; i < 10_000; i++) {
+            assertEquals(i, (long) map.get(i * 0x100000001L - 5000));
+        }
+        assertNull(map.get(Long.MAX_VALUE));
+        assertFalse(map.containsKey(-5001));
+    }
+
+    @Test
+    public void rebuild_dropsTombstones() {
+        LongConcurrentMap<Long> map = new LongConcurrentMap<>();
+        // ids of released presenters are not used again, so tombstones would fill the table
+        // without rebuild
+        for (long i = 0; i < 100_000; i++) {
+            map.put(i, i);
+            if (i >= 10) {
+                assertEquals(i - 10, (long) map.remove(i - 10));
+            }
+            // lookup of a missing key stops only at an empty slot
+            assertNull(map.get(-1));
+        }
+        assertEquals(10, map.size());
+        for (long i = 0; i < 100_000; i++) {
+            assertEquals(i < 100_000 - 10 ? null : (Long) i, map.get(i));
+        }
+    }
+
+    @Test
+    public void tombstone_isReusedBySameKey() {
+        LongConcurrentMap<Object> map = new LongConcurrentMap<>();
+        Object first = new Object();
+        Object second = new Object();
+        for (int i = 0; i < 100_000; i++) {
+            Object value = i % 2 == 0 ? first : second;
+            assertNull(map.put(42, value));
+            assertSame(value, map.get(42));
+            assertEquals(1, map.size());
+            assertFalse(map.remove(42, value == first ? second : first));
+            assertTrue(map.remove(42, value));
+            assertNull(map.get(42));
+            assertNull(map.remove(42));
+            assertEquals(0, map.size());
+        }
+        assertNull(map.putIfAbsent(42, first));
+        assertSame(first, map.putIfAbsent(42, second));
+    }
+
+    @Test
+    public void randomOperations_matchHashMap() {
+        Random random = new Random(1);
+        LongConcurrentMap<Integer> map = new LongConcurrentMap<>();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(3000) - 1000L;
+            int operation = random.nextInt(100);
+            if (operation < 45) {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            } else if (operation < 55) {
+                assertEquals(expected.putIfAbsent(key, i), map.putIfAbsent(key, i));
+            } else if (operation < 85) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.processor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+
+/**
+ * This annotation processor generates classes that replace {@link java.lang.reflect.Proxy}
+ * based implementations used by the library. Generated code invokes methods directly so there is
+ * no arguments boxing and reflective invocation on every call. Library falls back to reflection
+ * if generated class is not found.
+ */
+@SupportedAnnotationTypes("*")
+public class MvpProcessor extends AbstractProcessor {
+    static final String BASE_PRESENTER = "com.simplemvp.presenter.MvpBasePresenter";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement base = processingEnv.getElementUtils().getTypeElement(BASE_PRESENTER);
+        PresenterProxyGenerator presenterGenerator = new PresenterProxyGenerator(processingEnv);
+        ViewHandleGenerator handleGenerator = new ViewHandleGenerator(processingEnv);
+        for (TypeElement type : getTypes(new ArrayList<>(), roundEnv.getRootElements())) {
+            if (base != null && isPresenter(type, base)) {
+                presenterGenerator.generate(type);
+            }
+            if (ViewHandleGenerator.isProxified(type)) {
+                handleGenerator.generate(type);
+            }
+        }
+        // other processors may be interested in the same elements
+        return false;
+    }
+
+    private static List<TypeElement> getTypes(List<TypeElement> result, Collection<? extends Element> elements) {
+        for (TypeElement type : ElementFilter.typesIn(elements)) {
+            result.add(type);
+            getTypes(result, type.getEnclosedElements());
+        }
+        return result;
+    }
+
+    /**
+     * This predicate checks that provided type is a concrete presenter that can be proxied by a
+     * generated class placed in the same package.
+     */
+    private boolean isPresenter(TypeElement type, TypeElement base) {
+        Types types = processingEnv.getTypeUtils();
+        if (type.getKind() != ElementKind.CLASS || type.equals(base) || !type.getTypeParameters().isEmpty()) {
+            return false;
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT) || !isAccessible(type)) {
+            return false;
+        }
+        return types.isSubtype(types.erasure(type.asType()), types.erasure(base.asType()));
+    }
+
+    /**
+     * This method returns source code of default value of provided type.
+     */
+    static String getDefaultValue(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "false";
+            case CHAR:
+                return "'\\0'";
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return "(" + type + ") 0";
+            default:
+                return "null";
+        }
+    }
+
+    private static boolean isAccessible(TypeElement type) {
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            TypeElement current = (TypeElement) element;
+            if (current.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (current.getNestingKind() == NestingKind.MEMBER && !current.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * This class generates presenter proxy. Generated class implements all interfaces of the presenter
+ * and extends {@code com.simplemvp.presenter.MvpPresenterProxy}. It mirrors behaviour of the
+ * reflective {@code com.simplemvp.presenter.ProxyHandler}: {@code @MvpHandler} methods are
+ * submitted to the presenter executor, {@code @MvpReadOnly} methods are invoked directly and all
+ * other methods are invoked in synchronized context.
+ */
+final class PresenterProxyGenerator {
+    static final String SUFFIX = "_MvpProxy";
+    private static final String HANDLER = "com.simplemvp.annotations.MvpHandler";
+    private static final String READ_ONLY = "com.simplemvp.annotations.MvpReadOnly";
+    private static final String PROXY = "com.simplemvp.presenter.MvpPresenterProxy";
+    private static final String HANDLE = "com.simplemvp.common.MvpViewHandle";
+    private final Elements elements;
+    private final Types types;
+    private final ProcessingEnvironment env;
+
+    PresenterProxyGenerator(ProcessingEnvironment env) {
+        this.env = env;
+        this.elements = env.getElementUtils();
+        this.types = env.getTypeUtils();
+    }
+
+    void generate(TypeElement presenter) {
+        String pkg = elements.getPackageOf(presenter).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(presenter).toString();
+        String name = binaryName.substring(pkg.isEmpty() ? 0 : pkg.length() + 1) + SUFFIX;
+        List<DeclaredType> interfaces = getAllInterfaces((DeclaredType) presenter.asType());
+        for (DeclaredType type : interfaces) {
+            TypeElement element = (TypeElement) type.asElement();
+            if (!element.getModifiers().contains(Modifier.PUBLIC) &&
+                    !elements.getPackageOf(element).equals(elements.getPackageOf(presenter))) {
+                // reflective proxy is used in this case
+                env.getMessager().printMessage(Diagnostic.Kind.NOTE, "proxy is not generated since "
+                        + element + " is not accessible", presenter);
+                return;
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        if (!pkg.isEmpty()) {
+            builder.append("package ").append(pkg).append(";\n\n");
+        }
+        builder.append("// Generated by SimpleMVP annotation processor. Do not modify.\n");
+        builder.append("public final class ").append(name).append(" extends ").append(PROXY);
+        for (int i = 0; i < interfaces.size(); i++) {
+            builder.append(i == 0 ? " implements " : ", ").append(interfaces.get(i));
+        }
+        builder.append(" {\n");
+        builder.append("    private final ").append(presenter.getQualifiedName()).append(" presenter;\n\n");
+        builder.append("    public ").append(name).append("(").append(presenter.getQualifiedName()).append(" presenter) {\n");
+        builder.append("        super(presenter);\n");
+        builder.append("        this.presenter = presenter;\n");
+        builder.append("    }\n");
+        int index = 0;
+        for (ExecutableElement method : getInterfaceMethods(presenter, interfaces).values()) {
+            builder.append("\n");
+            writeMethod(builder, presenter, method, index++);
+        }
+        builder.append("}\n");
+        String qualifiedName = pkg.isEmpty() ? name : pkg + "." + name;
+        try (Writer writer = env.getFiler().createSourceFile(qualifiedName, presenter).openWriter()) {
+            writer.write(builder.toString());
+        } catch (IOException e) {
+            env.getMessager().printMessage(Diagnostic.Kind.ERROR, "can not write " + qualifiedName
+                    + ": " + e.getMessage(), presenter);
+        }
+    }
+
+    /**
+     * This method collects interfaces implemented by class and its super classes in the same way
+     * as {@code com.simplemvp.presenter.ProxyHandler} does it. Type arguments are resolved.
+     */
+    private List<DeclaredType> getAllInterfaces(DeclaredType type) {
+        Map<String, DeclaredType> result = new LinkedHashMap<>();
+        TypeMirror current = type;
+        while (current.getKind() == TypeKind.DECLARED && !isObject(current)) {
+            List<? extends TypeMirror> supertypes = types.directSupertypes(current);
+            current = supertypes.isEmpty() ? null : supertypes.get(0);
+            for (TypeMirror supertype : supertypes.subList(1, supertypes.size())) {
+                String key = types.erasure(supertype).toString();
+                if (!result.containsKey(key)) {
+                    result.put(key, (DeclaredType) supertype);
+                }
+            }
+            if (current == null) {
+                break;
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    private boolean isObject(TypeMirror type) {
+        return ((TypeElement) types.asElement(type)).getQualifiedName().contentEquals(Object.class.getName());
+    }
+
+    private Map<String, ExecutableElement> getInterfaceMethods(TypeElement presenter, List<DeclaredType> interfaces) {
+        Map<String, ExecutableElement> result = new LinkedHashMap<>();
+        for (DeclaredType type : interfaces) {
+            for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers((TypeElement) type.asElement()))) {
+                Element owner = method.getEnclosingElement();
+                if (!owner.getKind().isInterface() || method.getModifiers().contains(Modifier.STATIC) ||
+                        method.getModifiers().contains(Modifier.PRIVATE)) {
+                    continue;
+                }
+                ExecutableType resolved = (ExecutableType) types.asMemberOf((DeclaredType) presenter.asType(), method);
+                StringBuilder key = new StringBuilder(method.getSimpleName());
+                for (TypeMirror parameter : resolved.getParameterTypes()) {
+                    key.append(',').append(types.erasure(parameter));
+                }
+                if (!result.containsKey(key.toString())) {
+                    result.put(key.toString(), method);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * This method looks up for a method that implements interface method. Annotations of the
+     * implementation define how method is invoked.
+     */
+    private ExecutableElement getImplementation(TypeElement presenter, ExecutableElement method) {
+        for (ExecutableElement candidate : ElementFilter.methodsIn(elements.getAllMembers(presenter))) {
+            if (!candidate.equals(method) && candidate.getSimpleName().equals(method.getSimpleName()) &&
+                    elements.overrides(candidate, method, presenter)) {
+                return candidate;
+            }
+        }
+        return method;
+    }
+
+    private static AnnotationMirror getAnnotation(ExecutableElement method, String name) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private Object getValue(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                elements.getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private void writeMethod(StringBuilder builder, TypeElement presenter, ExecutableElement method, int index) {
+        ExecutableType type = (ExecutableType) types.asMemberOf((DeclaredType) presenter.asType(), method);
+        ExecutableElement implementation = getImplementation(presenter, method);
+        AnnotationMirror handler = getAnnotation(implementation, HANDLER);
+        TypeMirror returnType = type.getReturnType();
+        boolean isVoid = returnType.getKind() == TypeKind.VOID;
+        boolean isExecutor = handler != null && (Boolean) getValue(handler, "executor");
+        if (isExecutor && !isVoid && !returnType.toString().equals(Void.class.getName())) {
+            env.getMessager().printMessage(Diagnostic.Kind.WARNING, "@MvpHandler method " +
+                    method.getSimpleName() + " is ignored since return value is incorrect", implementation);
+            isExecutor = false;
+            handler = null;
+        }
+        StringBuilder arguments = new StringBuilder();
+        for (int i = 0; i < type.getParameterTypes().size(); i++) {
+            arguments.append(i == 0 ? "" : ", ").append("arg").append(i);
+        }
+        String call = "presenter." + method.getSimpleName() + "(" + arguments + ")";
+
+        builder.append("    @Override\n    public ");
+        writeTypeVariables(builder, type.getTypeVariables());
+        builder.append(returnType).append(' ').append(method.getSimpleName()).append('(');
+        for (int i = 0; i < type.getParameterTypes().size(); i++) {
+            builder.append(i == 0 ? "" : ", ").append("final ").append(type.getParameterTypes().get(i))
+                    .append(" arg").append(i);
+        }
+        builder.append(')');
+        for (int i = 0; i < type.getThrownTypes().size(); i++) {
+            builder.append(i == 0 ? " throws " : ", ").append(type.getThrownTypes().get(i));
+        }
+        builder.append(" {\n");
+        long debounce = isExecutor ? (Long) getValue(handler, "debounceMs") : 0;
+        long throttle = isExecutor ? (Long) getValue(handler, "throttleMs") : 0;
+        if (debounce > 0 || throttle > 0) {
+            builder.append("        submitLimited(").append(index).append(", ")
+                    .append(getHandleArgument(type.getParameterTypes())).append(", ")
+                    .append(getViewIdArgument(type.getParameterTypes())).append(", ")
+                    .append(debounce).append("L, ").append(throttle).append("L, () -> ")
+                    .append(call).append(");\n");
+            if (!isVoid) {
+                builder.append("        return null;\n");
+            }
+        } else if (isExecutor && (Boolean) getValue(handler, "coalesce")) {
+            builder.append("        submitLatest(").append(index).append(", ")
+                    .append(getHandleArgument(type.getParameterTypes())).append(", ")
+                    .append(getViewIdArgument(type.getParameterTypes())).append(", () -> ")
+                    .append(call).append(");\n");
+            if (!isVoid) {
+                builder.append("        return null;\n");
+            }
+        } else if (isExecutor) {
+            builder.append("        presenter.submit(() -> ").append(call).append(");\n");
+            if (!isVoid) {
+                builder.append("        return null;\n");
+            }
+        } else if (handler == null && getAnnotation(implementation, READ_ONLY) != null) {
+            builder.append("        try {\n");
+            builder.append("            ").append(isVoid ? "" : "return ").append(call).append(";\n");
+            // checked exceptions are declared by the method, so they are rethrown as is
+            builder.append("        } catch (Exception e) {\n");
+            builder.append("            onError(e);\n");
+            builder.append("            throw e;\n");
+            builder.append("        }\n");
+        } else {
+            builder.append("        Object wait = beginWait(\"").append(method.getSimpleName()).append("\");\n");
+            builder.append("        synchronized (presenter) {\n");
+            builder.append("            endWait(wait);\n");
+            builder.append("            try {\n");
+            builder.append("                beginTurn();\n");
+            builder.append("                ").append(isVoid ? "" : "return ").append(call).append(";\n");
+            builder.append("            } catch (Exception e) {\n");
+            // exception is not rethrown from a synchronous handler like reflective proxy does
+            builder.append("                ").append(handler == null ? "throw " : "").append("onError(e);\n");
+            builder.append("            } finally {\n");
+            builder.append("                endTurn();\n");
+            builder.append("            }\n");
+            builder.append("        }\n");
+            if (handler != null && !isVoid) {
+                builder.append("        return ").append(MvpProcessor.getDefaultValue(returnType)).append(";\n");
+            }
+        }
+        builder.append("    }\n");
+    }
+
+    /**
+     * This method returns the first argument of {@code MvpViewHandle} type
+     */
+    private String getHandleArgument(List<? extends TypeMirror> parameters) {
+        for (int i = 0; i < parameters.size(); i++) {
+            TypeMirror parameter = parameters.get(i);
+            if (parameter.getKind() == TypeKind.DECLARED &&
+                    ((TypeElement) types.asElement(parameter)).getQualifiedName().contentEquals(HANDLE)) {
+                return "arg" + i;
+            }
+        }
+        return "null";
+    }
+
+    /**
+     * This method returns the first integer argument that is considered to be a view ID
+     */
+    private static String getViewIdArgument(List<? extends TypeMirror> parameters) {
+        for (int i = 0; i < parameters.size(); i++) {
+            if (parameters.get(i).getKind() == TypeKind.INT) {
+                return "arg" + i;
+            }
+        }
+        return "0";
+    }
+
+    private static void writeTypeVariables(StringBuilder builder, List<? extends TypeVariable> variables) {
+        for (int i = 0; i < variables.size(); i++) {
+            TypeVariable variable = variables.get(i);
+            builder.append(i == 0 ? "<" : ", ").append(variable);
+            if (!variable.getUpperBound().toString().equals(Object.class.getName())) {
+                builder.append(" extends ").append(variable.getUpperBound());
+            }
+        }
+        if (!variables.isEmpty()) {
+            builder.append("> ");
+        }
+    }
+}
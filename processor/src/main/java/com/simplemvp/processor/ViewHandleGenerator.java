@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2020 Pavel A. Sokolov
+ */
+
+package com.simplemvp.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * This class generates {@code MvpViewHandle} implementation for a class which methods are annotated
+ * with {@code @Proxify}. Generated class mirrors behaviour of the reflective
+ * {@code com.simplemvp.view.ProxyHandler}: it checks that view is alive, hops to the main thread
+ * looper and queues calls while view is not ready. Calls from other threads are posted as a part of
+ * the current presenter turn batch. Source class has to provide
+ * {@code isParentViewReady()} and {@code submitEvent(Callable)} methods.
+ */
+final class ViewHandleGenerator {
+    static final String SUFFIX = "_MvpHandle";
+    static final String PROXIFY = "com.simplemvp.view.Proxify";
+    private static final String HANDLE = "com.simplemvp.common.MvpViewHandle";
+    private static final String PROXY = "com.simplemvp.view.MvpViewHandleProxy";
+    private final Elements elements;
+    private final Types types;
+    private final ProcessingEnvironment env;
+
+    ViewHandleGenerator(ProcessingEnvironment env) {
+        this.env = env;
+        this.elements = env.getElementUtils();
+        this.types = env.getTypeUtils();
+    }
+
+    static boolean isProxified(TypeElement type) {
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (getProxify(method) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static AnnotationMirror getProxify(ExecutableElement method) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(PROXIFY)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    void generate(TypeElement source) {
+        DeclaredType handle = getHandleType((DeclaredType) source.asType());
+        if (handle == null) {
+            env.getMessager().printMessage(Diagnostic.Kind.ERROR, "@Proxify is used by class that " +
+                    "does not implement " + HANDLE, source);
+            return;
+        }
+        String pkg = elements.getPackageOf(source).getQualifiedName().toString();
+        String name = source.getSimpleName() + SUFFIX;
+        StringBuilder parameters = new StringBuilder();
+        StringBuilder arguments = new StringBuilder();
+        List<? extends TypeParameterElement> typeParameters = source.getTypeParameters();
+        for (int i = 0; i < typeParameters.size(); i++) {
+            TypeParameterElement parameter = typeParameters.get(i);
+            parameters.append(i == 0 ? "<" : ", ").append(parameter.getSimpleName());
+            for (int j = 0; j < parameter.getBounds().size(); j++) {
+                parameters.append(j == 0 ? " extends " : " & ").append(parameter.getBounds().get(j));
+            }
+            arguments.append(i == 0 ? "<" : ", ").append(parameter.getSimpleName());
+        }
+        if (!typeParameters.isEmpty()) {
+            parameters.append('>');
+            arguments.append('>');
+        }
+        String sourceType = source.getQualifiedName() + arguments.toString();
+        TypeMirror state = handle.getTypeArguments().get(0);
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("package ").append(pkg).append(";\n\n");
+        builder.append("// Generated by SimpleMVP annotation processor. Do not modify.\n");
+        builder.append("final class ").append(name).append(parameters).append(" extends ").append(PROXY)
+                .append('<').append(state).append("> implements ").append(handle).append(" {\n\n");
+        builder.append("    ").append(name).append("(").append(sourceType).append(" dispatcher, ")
+                .append("com.simplemvp.common.MvpPresenter<").append(state).append("> presenter) {\n");
+        builder.append("        super(dispatcher, presenter);\n");
+        builder.append("    }\n\n");
+        builder.append("    @SuppressWarnings(\"unchecked\")\n");
+        builder.append("    private ").append(sourceType).append(" getSource() {\n");
+        builder.append("        return (").append(sourceType).append(") getDispatcher();\n");
+        builder.append("    }\n");
+        int index = 0;
+        TypeElement handleElement = (TypeElement) handle.asElement();
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(handleElement))) {
+            if (!method.getEnclosingElement().getKind().isInterface() || method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            builder.append('\n');
+            writeMethod(builder, source, sourceType, method, index++);
+        }
+        builder.append("}\n");
+        String qualifiedName = pkg + "." + name;
+        try (Writer writer = env.getFiler().createSourceFile(qualifiedName, source).openWriter()) {
+            writer.write(builder.toString());
+        } catch (IOException e) {
+            env.getMessager().printMessage(Diagnostic.Kind.ERROR, "can not write " + qualifiedName
+                    + ": " + e.getMessage(), source);
+        }
+    }
+
+    private DeclaredType getHandleType(DeclaredType type) {
+        for (TypeMirror supertype : types.directSupertypes(type)) {
+            TypeElement element = (TypeElement) types.asElement(supertype);
+            if (element.getQualifiedName().contentEquals(HANDLE)) {
+                return (DeclaredType) supertype;
+            }
+        }
+        return null;
+    }
+
+    private ExecutableElement getImplementation(TypeElement source, ExecutableElement method) {
+        for (ExecutableElement candidate : ElementFilter.methodsIn(elements.getAllMembers(source))) {
+            if (!candidate.equals(method) && candidate.getSimpleName().equals(method.getSimpleName()) &&
+                    elements.overrides(candidate, method, source)) {
+                return candidate;
+            }
+        }
+        return method;
+    }
+
+    private boolean getValue(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                elements.getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return (Boolean) entry.getValue().getValue();
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private void writeMethod(StringBuilder builder, TypeElement source, String sourceType,
+                             ExecutableElement method, int index) {
+        ExecutableType type = (ExecutableType) types.asMemberOf((DeclaredType) source.asType(), method);
+        AnnotationMirror proxify = getProxify(getImplementation(source, method));
+        if (proxify == null) {
+            env.getMessager().printMessage(Diagnostic.Kind.ERROR, method.getSimpleName() +
+                    " is not annotated with @Proxify", source);
+            return;
+        }
+        boolean isLooper = getValue(proxify, "looper");
+        boolean isAlive = getValue(proxify, "alive");
+        boolean isQueued = getValue(proxify, "queued");
+        TypeMirror returnType = type.getReturnType();
+        boolean isVoid = returnType.getKind() == TypeKind.VOID;
+        StringBuilder arguments = new StringBuilder();
+        StringBuilder parameters = new StringBuilder();
+        for (int i = 0; i < type.getParameterTypes().size(); i++) {
+            arguments.append(", ").append("arg").append(i);
+            parameters.append(", final ").append(type.getParameterTypes().get(i)).append(" arg").append(i);
+        }
+        String call = "dispatcher." + method.getSimpleName() + "(" +
+                (arguments.length() == 0 ? "" : arguments.substring(2)) + ")";
+        String helper = "invoke" + index;
+
+        builder.append("    @Override\n");
+        builder.append("    public ").append(returnType).append(' ').append(method.getSimpleName()).append('(')
+                .append(parameters.length() == 0 ? "" : parameters.substring(2)).append(") {\n");
+        builder.append("        final ").append(sourceType).append(" dispatcher = getSource();\n");
+        builder.append("        if (dispatcher == null) {\n");
+        if (isAlive) {
+            builder.append("            throw newDestroyedException();\n");
+        } else {
+            builder.append("            return").append(isVoid ? "" : " " + MvpProcessor.getDefaultValue(returnType)).append(";\n");
+        }
+        builder.append("        }\n");
+        if (isLooper && !isQueued) {
+            // method checks view readiness itself
+            if (isVoid) {
+                builder.append("        if (isMainThread()) {\n");
+                builder.append("            ").append(call).append(";\n");
+                builder.append("        } else {\n");
+                builder.append("            postToMainThread(() -> ").append(call).append(");\n");
+                builder.append("        }\n");
+            } else {
+                builder.append("        if (isMainThread()) {\n");
+                builder.append("            return ").append(call).append(";\n");
+                builder.append("        }\n");
+                builder.append("        postToMainThread(() -> ").append(call).append(");\n");
+                builder.append("        return ").append(MvpProcessor.getDefaultValue(returnType)).append(";\n");
+            }
+        } else if (isLooper) {
+            String invoke = helper + "(dispatcher" + arguments + ")";
+            builder.append("        if (isMainThread()) {\n");
+            if (isVoid) {
+                builder.append("            ").append(invoke).append(";\n");
+                builder.append("        } else {\n");
+                // readiness is checked once for the whole batch when it is delivered
+                builder.append("            postQueued(() -> {\n");
+                builder.append("                ").append(call).append(";\n");
+                builder.append("                return null;\n");
+                builder.append("            });\n");
+                builder.append("        }\n");
+            } else {
+                builder.append("            return ").append(invoke).append(";\n");
+                builder.append("        }\n");
+                builder.append("        postQueued(() -> ").append(call).append(");\n");
+                builder.append("        return ").append(MvpProcessor.getDefaultValue(returnType)).append(";\n");
+            }
+            builder.append("    }\n\n");
+            builder.append("    private ").append(returnType).append(' ').append(helper).append("(final ")
+                    .append(sourceType).append(" dispatcher").append(parameters).append(") {\n");
+            builder.append("        if (dispatcher.isParentViewReady()) {\n");
+            if (isVoid) {
+                builder.append("            ").append(call).append(";\n");
+                builder.append("        } else {\n");
+                builder.append("            dispatcher.submitEvent(() -> {\n");
+                builder.append("                ").append(call).append(";\n");
+                builder.append("                return null;\n");
+                builder.append("            });\n");
+                builder.append("        }\n");
+            } else {
+                builder.append("            return ").append(call).append(";\n");
+                builder.append("        }\n");
+                builder.append("        dispatcher.submitEvent(() -> ").append(call).append(");\n");
+                builder.append("        return ").append(MvpProcessor.getDefaultValue(returnType)).append(";\n");
+            }
+        } else {
+            builder.append("        ").append(isVoid ? "" : "return ").append(call).append(";\n");
+        }
+        builder.append("    }\n");
+    }
+}
@@ -14,9 +14,12 @@ import androidx.core.app.NotificationCompat;
 import androidx.core.util.Consumer;
 
 import com.simplemvp.presenter.MvpPresenterManager;
+import com.testapp.presenter.MainPresenterImpl;
+import com.testapp.presenter.MainState;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class TestApplication extends Application {
     private final static String tag = TestApplication.class.getSimpleName();
@@ -30,7 +33,7 @@ public class TestApplication extends Application {
     public void onCreate() {
         super.onCreate();
         notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-        executor = Executors.newSingleThreadExecutor();
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
         errorHandler = error -> {
             notificationManager.notify(ERROR_NOTIFICATION_ID,
                     getErrorNotification(getCause(error).getMessage()));
@@ -38,6 +41,14 @@ public class TestApplication extends Application {
         };
         presenterManager = MvpPresenterManager.getInstance(this);
         presenterManager.initialize(executor, errorHandler);
+        presenterManager.setRetention(4, TimeUnit.MINUTES.toMillis(5));
+        // main presenter opens database, it is constructed before main activity is created
+        presenterManager.preparePresenterInstance(MainPresenterImpl.class, MainState.class);
+        if (BuildConfig.DEBUG) {
+            presenterManager.setDeliveryListener((mode, queueTime, renderTime) ->
+                    Log.d(tag, "delivery " + mode + ": queue " + queueTime / 1000 + " us, render " +
+                            renderTime / 1000 + " us"));
+        }
     }
 
     private Throwable getCause(Throwable e) {
@@ -37,7 +37,6 @@ import com.testapp.view.SettingsDialog;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
@@ -52,6 +51,7 @@ import static com.testapp.common.EventType.UI;
 
 public class MainPresenterImpl extends MvpBasePresenter<MainState> implements MainPresenter {
     private final static int SELECT_FILE_CODE = 1;
+    private final static int SEARCH_DELAY = 300;
     private final AppState appState;
     private final ConnectivityManager connectivityManager;
     private final BoxStore store;
@@ -74,12 +74,21 @@ public class MainPresenterImpl extends MvpBasePresenter<MainState> implements Ma
 
     private ScheduledFuture<?> startTimer() {
         state.setStarted(true);
-        return schedulePeriodic(() -> {
-            state.incProgress();
+        // ticks are aligned with wall clock and paused in background, so progress is calculated
+        return subscribeToTicks(() -> {
+            state.setProgress(getTimerProgress());
             commit();
         }, 1, TimeUnit.SECONDS);
     }
 
+    /**
+     * This method returns seconds since the timer has been started, progress wraps every hour
+     * like {@link MainState#incProgress()} does
+     */
+    private int getTimerProgress() {
+        return (int) ((System.currentTimeMillis() - appState.getTimerStartedTime()) / 1000 % 3600);
+    }
+
     private void stopTimer(ScheduledFuture<?> timer) {
         state.setStarted(false);
         timer.cancel(false);
@@ -116,7 +125,7 @@ public class MainPresenterImpl extends MvpBasePresenter<MainState> implements Ma
         super.onViewsActive();
         recordEvent(new Event(LIFECYCLE, "onViewsActive"));
         if (appState.isTimerStarted()) {
-            state.setProgress((int) ((System.currentTimeMillis() - appState.getTimerStartedTime()) / 1000));
+            state.setProgress(getTimerProgress());
             if (timer == null) {
                 timer = startTimer();
             }
@@ -140,18 +149,20 @@ public class MainPresenterImpl extends MvpBasePresenter<MainState> implements Ma
     }
 
     @Override
-    @MvpHandler
+    @MvpHandler(coalesce = true)
     public void onTextChanged(@NonNull MvpViewHandle<MainState> handle, int viewId, String text) {
         super.onTextChanged(handle, viewId, text);
         if (viewId == R.id.main_search) {
             state.setSearchPattern(text.toLowerCase());
-        } else {
-            recordEvent(new Event("onTextChanged", viewId));
-            if (viewId == R.id.main_toast_text) {
-                state.setText(text);
-            } else if (viewId == R.id.main_expression) {
-                state.setExpression(text.trim(), false);
-            }
+            // filtering of events is rendered when user stops typing, expression is echoed at once
+            commit(Math.max(state.delay, SEARCH_DELAY));
+            return;
+        }
+        recordEvent(new Event("onTextChanged", viewId));
+        if (viewId == R.id.main_toast_text) {
+            state.setText(text);
+        } else if (viewId == R.id.main_expression) {
+            state.setExpression(text.trim(), false);
         }
         commit(state.delay);
     }
@@ -283,7 +294,7 @@ public class MainPresenterImpl extends MvpBasePresenter<MainState> implements Ma
     }
 
     @Override
-    @MvpHandler
+    @MvpHandler(coalesce = true)
     public void onProgressChanged(@NonNull MvpViewHandle<MainState> handle, int viewId, int progress) {
         super.onProgressChanged(handle, viewId, progress);
         recordEvent(new Event("onProgressChanged", viewId));
@@ -315,8 +326,7 @@ public class MainPresenterImpl extends MvpBasePresenter<MainState> implements Ma
         super.onTrimMemory(level);
         recordEvent(new Event(SYSTEM, "onTrimMemory"));
         if (level != ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
-            List<Event> events = state.events;
-            events.subList(0, events.size() - 10).clear();
+            state.trimEvents(10);
         }
         commit(state.delay);
     }
@@ -5,6 +5,7 @@
 package com.testapp.presenter;
 
 import com.simplemvp.common.MvpState;
+import com.simplemvp.common.PersistentVector;
 import com.testapp.common.ActionDuration;
 import com.testapp.common.Event;
 
@@ -13,7 +14,19 @@ import java.util.List;
 import java.util.Locale;
 
 public class MainState extends MvpState {
-    public List<Event> events = new ArrayList<>();
+    public final static int EVENTS = 0;
+    public final static int DELAY = 1;
+    public final static int TEXT = 2;
+    public final static int DURATION = 3;
+    public final static int SUBSCRIPTIONS = 4;
+    public final static int SEARCH_PATTERN = 5;
+    public final static int WRITE_GRANTED = 6;
+    public final static int EXPRESSION = 7;
+    public final static int CURRENT_PAGE = 8;
+    public final static int PROGRESS = 9;
+    public final static int FILE_NAME = 10;
+    public final static int STARTED = 11;
+    public PersistentVector<Event> events = new PersistentVector<>();
     public boolean isEventAdded;
     public int delay = 100;
     public String text = "";
@@ -29,29 +42,41 @@ public class MainState extends MvpState {
     public boolean isStarted;
     public String fileName = "";
 
+    public MainState() {
+        super(true);
+    }
+
     public void setText(String text) {
-        setChanged(!this.text.equals(text));
-        this.text = text;
+        if (!this.text.equals(text)) {
+            change(TEXT, (MainState s) -> s.text = text);
+        }
     }
 
     public void setEvents(List<Event> events) {
-        setChanged(true);
-        this.events = events;
+        change(EVENTS, (MainState s) -> s.events = new PersistentVector<>(events));
     }
 
     public void addEvent(Event event) {
-        setChanged(true);
-        events.add(event);
-        isEventAdded = true;
+        change(EVENTS, (MainState s) -> {
+            s.events.add(event);
+            s.isEventAdded = true;
+        });
     }
 
     public void removeEvent(Event event) {
-        setChanged(events.remove(event));
+        if (events.contains(event)) {
+            change(EVENTS, (MainState s) -> s.events.remove(event));
+        }
     }
 
     public void clearEvents() {
-        setChanged(true);
-        events.clear();
+        change(EVENTS, (MainState s) -> s.events.clear());
+    }
+
+    public void trimEvents(int count) {
+        if (events.size() > count) {
+            change(EVENTS, (MainState s) -> s.events.subList(0, s.events.size() - count).clear());
+        }
     }
 
     public List<Event> getFilteredEvents() {
@@ -77,61 +102,72 @@ public class MainState extends MvpState {
     }
 
     public void setSubscribedToConnectivity(boolean subscribedToConnectivity) {
-        setChanged(isSubscribedToConnectivity != subscribedToConnectivity);
-        isSubscribedToConnectivity = subscribedToConnectivity;
+        if (isSubscribedToConnectivity != subscribedToConnectivity) {
+            change(SUBSCRIPTIONS, (MainState s) -> s.isSubscribedToConnectivity = subscribedToConnectivity);
+        }
     }
 
     public void setSubscribedToPowerSupply(boolean subscribedToPowerSupply) {
-        setChanged(isSubscribedToPowerSupply != subscribedToPowerSupply);
-        isSubscribedToPowerSupply = subscribedToPowerSupply;
+        if (isSubscribedToPowerSupply != subscribedToPowerSupply) {
+            change(SUBSCRIPTIONS, (MainState s) -> s.isSubscribedToPowerSupply = subscribedToPowerSupply);
+        }
     }
 
     public void setDuration(ActionDuration duration) {
-        setChanged(!this.duration.equals(duration));
-        this.duration = duration;
+        if (!this.duration.equals(duration)) {
+            change(DURATION, (MainState s) -> s.duration = duration);
+        }
     }
 
     public void setDelay(int delay) {
-        setChanged(this.delay != delay);
-        this.delay = delay;
+        if (this.delay != delay) {
+            change(DELAY, (MainState s) -> s.delay = delay);
+        }
     }
 
     public void setSearchPattern(String value) {
-        setChanged(!searchPattern.equals(value));
-        this.searchPattern = value;
+        if (!searchPattern.equals(value)) {
+            change(SEARCH_PATTERN, (MainState s) -> s.searchPattern = value);
+        }
     }
 
     public void setWriteGranted(boolean writeGranted) {
-        setChanged(isWriteGranted != writeGranted);
-        isWriteGranted = writeGranted;
+        if (isWriteGranted != writeGranted) {
+            change(WRITE_GRANTED, (MainState s) -> s.isWriteGranted = writeGranted);
+        }
     }
 
     public void setExpression(String expression, boolean isEvaluated) {
-        setChanged(!this.expression.equals(expression));
-        this.expression = expression;
-        this.isEvaluated = isEvaluated;
+        if (!this.expression.equals(expression) || isEvaluated) {
+            change(EXPRESSION, (MainState s) -> {
+                s.expression = expression;
+                s.isEvaluated = isEvaluated;
+            });
+        }
     }
 
     public void setCurrentPage(int currentPage) {
-        setChanged(this.currentPage != currentPage);
-        this.currentPage = currentPage;
+        if (this.currentPage != currentPage) {
+            change(CURRENT_PAGE, (MainState s) -> s.currentPage = currentPage);
+        }
     }
 
     public void setProgress(int progress) {
-        setChanged(this.progress != progress);
-        this.progress = progress;
+        if (this.progress != progress) {
+            change(PROGRESS, (MainState s) -> s.progress = progress);
+        }
     }
 
     public void incProgress() {
         if (isStarted) {
-            setChanged(true);
-            progress = (progress + 1) % 3600;
+            change(PROGRESS, (MainState s) -> s.progress = (s.progress + 1) % 3600);
         }
     }
 
     public void setStarted(boolean started) {
-        setChanged(isStarted != started);
-        isStarted = started;
+        if (isStarted != started) {
+            change(STARTED, (MainState s) -> s.isStarted = started);
+        }
     }
 
     public String getTextProgress() {
@@ -139,19 +175,16 @@ public class MainState extends MvpState {
                 progress / 60, progress % 60);
     }
 
-    public boolean isTimerStateChanged() {
-        return (progress == 0 && isStarted) || (progress > 0 && !isStarted);
-    }
-
     public void setFileName(String fileName) {
-        setChanged(!this.fileName.equals(fileName));
-        this.fileName = fileName;
+        if (!this.fileName.equals(fileName)) {
+            change(FILE_NAME, (MainState s) -> s.fileName = fileName);
+        }
     }
 
     @Override
     public synchronized MainState clone() throws CloneNotSupportedException {
         MainState state = (MainState) super.clone();
-        state.events = new ArrayList<>(events);
+        state.events = events.snapshot();
         return state;
     }
 
@@ -53,8 +53,16 @@ public class EventsFragment extends MvpHostedFragment<MainPresenter, MainState>
                 presenter.onItemSelected(getViewHandle(), pair.first.getId(), pair.second));
     }
 
+    @Override
+    public boolean isFrameAligned() {
+        return true;
+    }
+
     @Override
     public void onStateChanged(@NonNull MainState state) {
+        if (!state.isChanged(MainState.EVENTS) && !state.isChanged(MainState.SEARCH_PATTERN)) {
+            return;
+        }
         List<Event> items = state.getFilteredEvents();
         eventsAdapter.setEvents(items);
         if (state.isEventAdded) {
@@ -20,6 +20,7 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.simplemvp.common.MvpDeliveryMode;
 import com.simplemvp.view.MvpEditText;
 import com.simplemvp.view.MvpHostedFragment;
 import com.testapp.R;
@@ -55,6 +56,13 @@ public class MainFragment extends MvpHostedFragment<MainPresenter, MainState> {
         return R.layout.fragment_main;
     }
 
+    @NonNull
+    @Override
+    public MvpDeliveryMode getDeliveryMode() {
+        // expression is echoed while user types
+        return MvpDeliveryMode.URGENT;
+    }
+
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
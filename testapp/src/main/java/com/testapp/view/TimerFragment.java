@@ -53,9 +53,11 @@ public class TimerFragment extends MvpHostedFragment<MainPresenter, MainState> {
 
     @Override
     public void onStateChanged(@NonNull MainState state) {
-        progress.setProgress(state.progress);
-        text.setText(state.getTextProgress());
-        if (state.isTimerStateChanged()) {
+        if (state.isChanged(MainState.PROGRESS)) {
+            progress.setProgress(state.progress);
+            text.setText(state.getTextProgress());
+        }
+        if (state.isChanged(MainState.STARTED)) {
             startStop.setImageDrawable(getResources()
                     .getDrawable(state.isStarted ? R.drawable.ic_stop : R.drawable.ic_start));
         }